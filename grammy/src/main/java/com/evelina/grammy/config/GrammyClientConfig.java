@@ -0,0 +1,86 @@
+package com.evelina.grammy.config;
+
+import com.evelina.grammy.service.BlockingGrammyClient;
+import com.evelina.grammy.service.CoalescingGrammyClient;
+import com.evelina.grammy.service.ErrorResponseDecoder;
+import com.evelina.grammy.service.GrammyClient;
+import com.evelina.grammy.service.GrammyClientService;
+import com.evelina.grammy.service.ReactiveGrammyClient;
+import com.evelina.grammy.service.ResilientGrammyClient;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.Retry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Slf4j
+@Configuration
+public class GrammyClientConfig {
+
+    // labs принимает в POST /grammy/band/batch не больше 1000 операций
+    private static final int LABS_MAX_BATCH_OPERATIONS = 1000;
+
+    @Bean
+    public GrammyClient grammyClient(@Value("${client.labs.mode:blocking}") String mode,
+                                     @Value("${client.labs.executor-threads:200}") int executorThreads,
+                                     GrammyClientService grammyClientService,
+                                     ObjectProvider<WebClient> labsWebClient,
+                                     ErrorResponseDecoder errorResponseDecoder,
+                                     CircuitBreaker labsCircuitBreaker,
+                                     Bulkhead labsBulkhead,
+                                     Retry labsRetry,
+                                     Retry labsIdempotentRetry,
+                                     ScheduledExecutorService labsRetryScheduler,
+                                     @Value("${client.labs.coalescing.enabled:false}") boolean coalescingEnabled,
+                                     @Value("${client.labs.coalescing.window:5ms}") Duration coalescingWindow,
+                                     @Value("${client.labs.coalescing.max-batch-size:500}") int coalescingMaxBatchSize,
+                                     ExecutorService labsCoalescingSender) {
+        GrammyClient client = switch (mode) {
+            case "blocking" -> new BlockingGrammyClient(grammyClientService, Runnable::run);
+            case "virtual-threads" -> new BlockingGrammyClient(grammyClientService, virtualThreadExecutor(executorThreads));
+            case "reactive" -> new ReactiveGrammyClient(labsWebClient.getObject(), errorResponseDecoder);
+            default -> throw new IllegalStateException("Неизвестный режим client.labs.mode: " + mode);
+        };
+        GrammyClient resilient = new ResilientGrammyClient(client, labsCircuitBreaker, labsBulkhead, labsRetry,
+                labsIdempotentRetry, labsRetryScheduler, "blocking".equals(mode));
+        if (!coalescingEnabled) {
+            return resilient;
+        }
+        if (coalescingMaxBatchSize > LABS_MAX_BATCH_OPERATIONS) {
+            throw new IllegalStateException("client.labs.coalescing.max-batch-size не может превышать " + LABS_MAX_BATCH_OPERATIONS);
+        }
+        return new CoalescingGrammyClient(resilient, labsCoalescingScheduler(), labsCoalescingSender,
+                coalescingWindow, coalescingMaxBatchSize);
+    }
+
+    // только таймер окна: пакеты отправляются в labsCoalescingSender
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService labsCoalescingScheduler() {
+        return Executors.newSingleThreadScheduledExecutor();
+    }
+
+    // в режиме blocking пакет занимает поток на все время вызова labs, включая повторы
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService labsCoalescingSender(@Value("${client.labs.coalescing.sender-threads:4}") int senderThreads) {
+        return Executors.newFixedThreadPool(senderThreads);
+    }
+
+    // сборка под Java 17, поэтому фабрика виртуальных потоков ищется во время выполнения
+    private ExecutorService virtualThreadExecutor(int fallbackThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Виртуальные потоки недоступны в этой JVM, используется пул из {} потоков", fallbackThreads);
+            return Executors.newFixedThreadPool(fallbackThreads);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.evelina.grammy.config;
+
+import com.evelina.grammy.dto.VoidResponse;
+import com.evelina.grammy.service.ResilientGrammyClient;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+public class ResilienceConfig {
+
+    private static final String LABS = "labs";
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(
+            @Value("${client.labs.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${client.labs.circuit-breaker.slow-call-duration:5s}") Duration slowCallDuration,
+            @Value("${client.labs.circuit-breaker.slow-call-rate-threshold:80}") float slowCallRateThreshold,
+            @Value("${client.labs.circuit-breaker.sliding-window-size:50}") int slidingWindowSize,
+            @Value("${client.labs.circuit-breaker.minimum-number-of-calls:20}") int minimumNumberOfCalls,
+            @Value("${client.labs.circuit-breaker.wait-in-open-state:10s}") Duration waitInOpenState,
+            @Value("${client.labs.circuit-breaker.permitted-calls-in-half-open-state:5}") int permittedCallsInHalfOpenState) {
+        return CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slowCallRateThreshold(slowCallRateThreshold)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitInOpenState)
+                .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                // ответы 4xx - результат бизнес-проверок labs, отказом считаются только 5xx и ошибки вызова
+                .recordResult(result -> result instanceof VoidResponse response
+                        && response.getStatusCode().is5xxServerError())
+                .build());
+    }
+
+    @Bean
+    public BulkheadRegistry bulkheadRegistry(
+            @Value("${client.labs.bulkhead.max-concurrent-calls:100}") int maxConcurrentCalls,
+            @Value("${client.labs.bulkhead.max-wait:0ms}") Duration maxWait) {
+        return BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build());
+    }
+
+    @Bean
+    public RetryRegistry retryRegistry(
+            @Value("${client.labs.retry.max-attempts:3}") int maxAttempts,
+            @Value("${client.labs.retry.initial-interval:100ms}") Duration initialInterval,
+            @Value("${client.labs.retry.randomization-factor:0.5}") double randomizationFactor) {
+        return RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(initialInterval, 2.0, randomizationFactor))
+                .retryOnException(ResilientGrammyClient::isNotSent)
+                .build());
+    }
+
+    @Bean
+    public CircuitBreaker labsCircuitBreaker(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return circuitBreakerRegistry.circuitBreaker(LABS);
+    }
+
+    @Bean
+    public Bulkhead labsBulkhead(BulkheadRegistry bulkheadRegistry) {
+        return bulkheadRegistry.bulkhead(LABS);
+    }
+
+    @Bean
+    public Retry labsRetry(RetryRegistry retryRegistry) {
+        return retryRegistry.retry(LABS);
+    }
+
+    @Bean
+    public Retry labsIdempotentRetry(RetryRegistry retryRegistry) {
+        return retryRegistry.retry(LABS + "-idempotent", RetryConfig.from(retryRegistry.getDefaultConfig())
+                .retryOnException(ResilientGrammyClient::isTransportFailure)
+                .build());
+    }
+
+    // только отсчет пауз между попытками: сами вызовы labs в этом потоке не выполняются
+    @Bean(destroyMethod = "shutdown")
+    public ScheduledExecutorService labsRetryScheduler() {
+        return Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @Bean
+    public MeterBinder circuitBreakerMetrics(CircuitBreakerRegistry circuitBreakerRegistry) {
+        return TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry);
+    }
+
+    @Bean
+    public MeterBinder bulkheadMetrics(BulkheadRegistry bulkheadRegistry) {
+        return TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry);
+    }
+
+    @Bean
+    public MeterBinder retryMetrics(RetryRegistry retryRegistry) {
+        return TaggedRetryMetrics.ofRetryRegistry(retryRegistry);
+    }
+}
@@ -1,9 +1,19 @@
 package com.evelina.grammy.config;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import io.micrometer.observation.ObservationRegistry;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
 import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -13,17 +23,30 @@ import org.apache.hc.client5.http.ssl.NoopHostnameVerifier;
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
 import org.apache.hc.core5.ssl.SSLContexts;
 import org.apache.hc.core5.ssl.TrustStrategy;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.netty.http.Http11SslContextSpec;
+import reactor.netty.http.Http2SslContextSpec;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.Http2AllocationStrategy;
+import reactor.netty.resources.ConnectionProvider;
 
 import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 
 
 
@@ -33,26 +56,101 @@ import java.security.cert.X509Certificate;
         @Value("${client.labs.base-url}")
         private String baseUrl;
 
+        @Value("${client.labs.pool.max-total:100}")
+        private int maxTotal;
+
+        @Value("${client.labs.pool.max-per-route:100}")
+        private int maxPerRoute;
+
+        @Value("${client.labs.pool.time-to-live:5m}")
+        private Duration timeToLive;
+
+        @Value("${client.labs.pool.evict-idle-after:30s}")
+        private Duration evictIdleAfter;
+
+        @Value("${client.labs.pool.validate-after-inactivity:2s}")
+        private Duration validateAfterInactivity;
+
+        @Value("${client.labs.keep-alive:30s}")
+        private Duration keepAlive;
+
+        @Value("${client.labs.connect-timeout:2s}")
+        private Duration connectTimeout;
+
+        @Value("${client.labs.response-timeout:10s}")
+        private Duration responseTimeout;
+
+        @Value("${client.labs.connection-request-timeout:1s}")
+        private Duration connectionRequestTimeout;
+
+        @Value("${client.labs.tls.session-cache-size:100}")
+        private int tlsSessionCacheSize;
+
+        @Value("${client.labs.tls.session-timeout:1h}")
+        private Duration tlsSessionTimeout;
+
+        /**
+         * При http2.enabled запросы идут через reactor-netty: бины пула httpclient5 и его метрики не создаются.
+         * Из client.labs.pool.* тогда действуют max-total (h2-соединения), time-to-live и evict-idle-after,
+         * а max-per-route и validate-after-inactivity, как и client.labs.keep-alive, не используются.
+         */
+        @Value("${client.labs.http2.enabled:false}")
+        private boolean http2Enabled;
+
+        @Value("${client.labs.http2.max-concurrent-streams:100}")
+        private long http2MaxConcurrentStreams;
+
         @Bean
-        public RestTemplate restTemplate() throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
+        @ConditionalOnProperty(name = "client.labs.http2.enabled", havingValue = "false", matchIfMissing = true)
+        public PoolingHttpClientConnectionManager labsConnectionManager() throws KeyManagementException, NoSuchAlgorithmException, KeyStoreException {
             TrustStrategy acceptingTrustStrategy = (X509Certificate[] chain, String authType) -> true;
 
             SSLContext sslContext = SSLContexts.custom()
                     .loadTrustMaterial(null, acceptingTrustStrategy)
                     .build();
+            // повторное использование TLS-сессий: новые соединения пула делают сокращенный handshake
+            sslContext.getClientSessionContext().setSessionCacheSize(tlsSessionCacheSize);
+            sslContext.getClientSessionContext().setSessionTimeout((int) tlsSessionTimeout.toSeconds());
 
             SSLConnectionSocketFactory csf = new SSLConnectionSocketFactory(
                     sslContext,
                     NoopHostnameVerifier.INSTANCE);
 
-            HttpClient httpClient = HttpClients.custom()
-                    .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
-                            .setSSLSocketFactory(csf)
+            return PoolingHttpClientConnectionManagerBuilder.create()
+                    .setSSLSocketFactory(csf)
+                    .setMaxConnTotal(maxTotal)
+                    .setMaxConnPerRoute(maxPerRoute)
+                    .setDefaultConnectionConfig(ConnectionConfig.custom()
+                            .setConnectTimeout(Timeout.of(connectTimeout))
+                            .setSocketTimeout(Timeout.of(responseTimeout))
+                            .setTimeToLive(TimeValue.of(timeToLive))
+                            .setValidateAfterInactivity(TimeValue.of(validateAfterInactivity))
                             .build())
                     .build();
+        }
+
+        @Bean
+        @ConditionalOnProperty(name = "client.labs.http2.enabled", havingValue = "false", matchIfMissing = true)
+        public MeterBinder labsConnectionPoolMetrics(PoolingHttpClientConnectionManager labsConnectionManager) {
+            return new PoolingHttpClientConnectionManagerMetricsBinder(labsConnectionManager, "labs");
+        }
 
-            HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(httpClient);
+        @Bean
+        public RestTemplate restTemplate(ObjectProvider<PoolingHttpClientConnectionManager> labsConnectionManager,
+                                         reactor.netty.http.client.HttpClient labsReactorHttpClient,
+                                         ObservationRegistry observationRegistry) {
+            ClientHttpRequestFactory requestFactory;
+            if (http2Enabled) {
+                // HTTP/2 в classic-клиенте httpclient5 недоступен: запросы мультиплексируются в reactor-netty
+                ReactorClientHttpRequestFactory reactorRequestFactory = new ReactorClientHttpRequestFactory(labsReactorHttpClient);
+                reactorRequestFactory.setReadTimeout(responseTimeout);
+                requestFactory = reactorRequestFactory;
+            } else {
+                requestFactory = new HttpComponentsClientHttpRequestFactory(pooledHttpClient(labsConnectionManager.getObject()));
+            }
             RestTemplate restTemplate = new RestTemplate(requestFactory);
+            // RestTemplate собран вручную, поэтому http.client.requests подключаем явно
+            restTemplate.setObservationRegistry(observationRegistry);
 
             if (baseUrl != null) {
                 restTemplate.setUriTemplateHandler(new org.springframework.web.util.DefaultUriBuilderFactory(baseUrl));
@@ -67,6 +165,78 @@ import java.security.cert.X509Certificate;
             return restTemplate;
         }
 
+        private HttpClient pooledHttpClient(PoolingHttpClientConnectionManager labsConnectionManager) {
+            return HttpClients.custom()
+                    .setConnectionManager(labsConnectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectionRequestTimeout(Timeout.of(connectionRequestTimeout))
+                            .setResponseTimeout(Timeout.of(responseTimeout))
+                            .build())
+                    .setKeepAliveStrategy((response, context) -> TimeValue.of(keepAlive))
+                    .evictExpiredConnections()
+                    .evictIdleConnections(TimeValue.of(evictIdleAfter))
+                    // без клиентского сертификата состояние соединения не нужно, иначе соединения не переиспользуются между потоками
+                    .disableConnectionState()
+                    .build();
+        }
+
+        @Bean
+        public reactor.netty.http.client.HttpClient labsReactorHttpClient() {
+            ConnectionProvider.Builder connectionProvider = ConnectionProvider.builder("labs")
+                    .maxConnections(maxTotal)
+                    .pendingAcquireTimeout(connectionRequestTimeout)
+                    .maxIdleTime(evictIdleAfter)
+                    .maxLifeTime(timeToLive)
+                    .evictInBackground(evictIdleAfter)
+                    .metrics(true);
+            if (http2Enabled) {
+                // без стратегии размещения пул открывает новое h2-соединение на каждый параллельный запрос
+                connectionProvider.allocationStrategy(Http2AllocationStrategy.builder()
+                        .maxConnections(maxTotal)
+                        .minConnections(1)
+                        .maxConcurrentStreams(http2MaxConcurrentStreams)
+                        .build());
+            }
+
+            // при http2.enabled h2 выбирается через ALPN, и одно соединение обслуживает параллельные запросы
+            HttpProtocol[] protocols = http2Enabled
+                    ? new HttpProtocol[]{HttpProtocol.H2, HttpProtocol.HTTP11}
+                    : new HttpProtocol[]{HttpProtocol.HTTP11};
+
+            return reactor.netty.http.client.HttpClient.create(connectionProvider.build())
+                    .protocol(protocols)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                    .responseTimeout(responseTimeout)
+                    .compress(true)
+                    .secure(ssl -> ssl.sslContext(http2Enabled
+                                    ? Http2SslContextSpec.forClient().configure(this::configureTls)
+                                    : Http11SslContextSpec.forClient().configure(this::configureTls))
+                            .handlerConfigurator(handler -> {
+                                SSLParameters parameters = handler.engine().getSSLParameters();
+                                parameters.setEndpointIdentificationAlgorithm(null);
+                                handler.engine().setSSLParameters(parameters);
+                            }));
+        }
+
+        private void configureTls(SslContextBuilder builder) {
+            builder.trustManager(InsecureTrustManagerFactory.INSTANCE)
+                    .sessionCacheSize(tlsSessionCacheSize)
+                    .sessionTimeout(tlsSessionTimeout.toSeconds());
+        }
+
+        @Bean
+        @ConditionalOnProperty(name = "client.labs.mode", havingValue = "reactive")
+        public WebClient labsWebClient(reactor.netty.http.client.HttpClient labsReactorHttpClient,
+                                       ObservationRegistry observationRegistry) {
+            return WebClient.builder()
+                    .observationRegistry(observationRegistry)
+                    .baseUrl(baseUrl)
+                    .clientConnector(new ReactorClientHttpConnector(labsReactorHttpClient))
+                    .defaultHeader("Content-Type", "application/xml")
+                    .defaultHeader("Accept", "application/xml")
+                    .build();
+        }
+
         @Configuration
         public class WebConfig implements WebMvcConfigurer {
             @Override
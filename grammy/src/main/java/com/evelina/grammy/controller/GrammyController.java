@@ -1,6 +1,6 @@
 package com.evelina.grammy.controller;
 
-import com.evelina.grammy.service.GrammyClientService;
+import com.evelina.grammy.service.GrammyClient;
 import com.evelina.grammy.dto.ErrorResponse;
 import com.evelina.grammy.dto.VoidResponse;
 import lombok.RequiredArgsConstructor;
@@ -8,22 +8,28 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/grammy")
 @RequiredArgsConstructor
 public class GrammyController {
 
-    private final GrammyClientService grammyClientService;
+    private final GrammyClient grammyClient;
 
     @DeleteMapping(value="/band/{band-id}/participants/remove", produces = MediaType.APPLICATION_XML_VALUE)
-    public ResponseEntity<ErrorResponse> removeParticipant(@PathVariable("band-id") Integer bandId) {
-        VoidResponse response = grammyClientService.removeParticipantFromBand(bandId);
-        return ResponseEntity.status(response.getStatusCode()).body(response.getError());
+    public CompletableFuture<ResponseEntity<ErrorResponse>> removeParticipant(@PathVariable("band-id") Integer bandId,
+                                                                              @RequestHeader(value = GrammyClient.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return grammyClient.removeParticipantFromBand(bandId, idempotencyKey).thenApply(GrammyController::toResponseEntity);
     }
 
     @PostMapping(value = "/band/{band-id}/singles/add", produces =  MediaType.APPLICATION_XML_VALUE)
-    public ResponseEntity<ErrorResponse> addSingle(@PathVariable("band-id") Integer bandId) {
-        VoidResponse response = grammyClientService.addSingleToBand(bandId);
+    public CompletableFuture<ResponseEntity<ErrorResponse>> addSingle(@PathVariable("band-id") Integer bandId,
+                                                                      @RequestHeader(value = GrammyClient.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        return grammyClient.addSingleToBand(bandId, idempotencyKey).thenApply(GrammyController::toResponseEntity);
+    }
+
+    private static ResponseEntity<ErrorResponse> toResponseEntity(VoidResponse response) {
         return ResponseEntity.status(response.getStatusCode()).body(response.getError());
     }
 }
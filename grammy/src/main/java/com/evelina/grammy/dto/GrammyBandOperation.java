@@ -0,0 +1,23 @@
+package com.evelina.grammy.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@XmlAccessorType(XmlAccessType.FIELD)
+public class GrammyBandOperation {
+    @XmlElement
+    private Integer bandId;
+
+    @XmlElement
+    private long singlesToAdd;
+
+    @XmlElement
+    private int participantsToRemove;
+}
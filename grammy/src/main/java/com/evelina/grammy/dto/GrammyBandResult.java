@@ -0,0 +1,29 @@
+package com.evelina.grammy.dto;
+
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@XmlAccessorType(XmlAccessType.FIELD)
+public class GrammyBandResult {
+    @XmlElement
+    private Integer bandId;
+
+    @XmlElement
+    private Integer status;
+
+    @XmlElement
+    private Long singlesAdded;
+
+    @XmlElement
+    private Integer participantsRemoved;
+
+    @XmlElement
+    private String message;
+}
@@ -0,0 +1,27 @@
+package com.evelina.grammy.dto;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import jakarta.xml.bind.annotation.XmlAccessType;
+import jakarta.xml.bind.annotation.XmlAccessorType;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlElementWrapper;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@XmlRootElement(name = "GrammyBatchResponse")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class GrammyBatchResponse {
+    @XmlElementWrapper(name = "results")
+    @XmlElement(name = "result")
+    @JacksonXmlElementWrapper(localName = "results")
+    @JacksonXmlProperty(localName = "result")
+    private List<GrammyBandResult> results;
+}
@@ -0,0 +1,31 @@
+package com.evelina.grammy.service;
+
+import com.evelina.grammy.dto.GrammyBatchRequest;
+import com.evelina.grammy.dto.GrammyBatchResponse;
+import com.evelina.grammy.dto.VoidResponse;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+@RequiredArgsConstructor
+public class BlockingGrammyClient implements GrammyClient {
+
+    private final GrammyClientService grammyClientService;
+    private final Executor executor;
+
+    @Override
+    public CompletableFuture<VoidResponse> removeParticipantFromBand(Integer bandId, String idempotencyKey) {
+        return CompletableFuture.supplyAsync(() -> grammyClientService.removeParticipantFromBand(bandId, idempotencyKey), executor);
+    }
+
+    @Override
+    public CompletableFuture<VoidResponse> addSingleToBand(Integer bandId, String idempotencyKey) {
+        return CompletableFuture.supplyAsync(() -> grammyClientService.addSingleToBand(bandId, idempotencyKey), executor);
+    }
+
+    @Override
+    public CompletableFuture<GrammyBatchResponse> applyBatch(GrammyBatchRequest request) {
+        return CompletableFuture.supplyAsync(() -> grammyClientService.applyBatch(request), executor);
+    }
+}
@@ -0,0 +1,181 @@
+package com.evelina.grammy.service;
+
+import com.evelina.grammy.dto.ErrorResponse;
+import com.evelina.grammy.dto.GrammyBandOperation;
+import com.evelina.grammy.dto.GrammyBandResult;
+import com.evelina.grammy.dto.GrammyBatchRequest;
+import com.evelina.grammy.dto.GrammyBatchResponse;
+import com.evelina.grammy.dto.VoidResponse;
+import com.evelina.grammy.exception.ServiceCallException;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Объединяет добавления синглов и удаления участников, пришедшие в течение window, в один вызов
+ * POST /grammy/band/batch. Пакет отправляется по истечении окна или при накоплении max-batch-size операций,
+ * результат раздается ожидающим вызовам так, как если бы они выполнялись по одному.
+ * Пакеты отправляются в потоках sender: ни поток таймера, ни вызывающий поток, заполнивший пакет,
+ * не ждут ответа labs.
+ */
+public class CoalescingGrammyClient implements GrammyClient {
+
+    private final GrammyClient delegate;
+    private final ScheduledExecutorService scheduler;
+    private final Executor sender;
+    private final Duration window;
+    private final int maxBatchSize;
+
+    private Map<Integer, PendingBand> pending = new LinkedHashMap<>();
+    private int pendingOperations;
+    private boolean flushScheduled;
+
+    public CoalescingGrammyClient(GrammyClient delegate, ScheduledExecutorService scheduler, Executor sender,
+                                  Duration window, int maxBatchSize) {
+        this.delegate = delegate;
+        this.scheduler = scheduler;
+        this.sender = sender;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public CompletableFuture<VoidResponse> removeParticipantFromBand(Integer bandId, String idempotencyKey) {
+        return idempotencyKey == null ? enqueue(bandId, false) : delegate.removeParticipantFromBand(bandId, idempotencyKey);
+    }
+
+    // вызовы с Idempotency-Key не объединяются: ключ относится к одной операции, а не к пакету
+    @Override
+    public CompletableFuture<VoidResponse> addSingleToBand(Integer bandId, String idempotencyKey) {
+        return idempotencyKey == null ? enqueue(bandId, true) : delegate.addSingleToBand(bandId, idempotencyKey);
+    }
+
+    @Override
+    public CompletableFuture<GrammyBatchResponse> applyBatch(GrammyBatchRequest request) {
+        return delegate.applyBatch(request);
+    }
+
+    private CompletableFuture<VoidResponse> enqueue(Integer bandId, boolean single) {
+        CompletableFuture<VoidResponse> future = new CompletableFuture<>();
+        Map<Integer, PendingBand> ready = null;
+        synchronized (this) {
+            PendingBand band = pending.computeIfAbsent(bandId, id -> new PendingBand());
+            (single ? band.singles : band.removals).add(future);
+            if (++pendingOperations >= maxBatchSize) {
+                ready = takePending();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::flush, window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (ready != null) {
+            sendAsync(ready);
+        }
+        return future;
+    }
+
+    private void flush() {
+        Map<Integer, PendingBand> ready;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty()) {
+                return;
+            }
+            ready = takePending();
+        }
+        sendAsync(ready);
+    }
+
+    private void sendAsync(Map<Integer, PendingBand> ready) {
+        try {
+            sender.execute(() -> send(ready));
+        } catch (RejectedExecutionException e) {
+            ready.values().forEach(band -> band.all().forEach(future -> future.completeExceptionally(
+                    new ServiceCallException("Слишком много одновременных запросов к сервису labs", HttpStatus.SERVICE_UNAVAILABLE))));
+        }
+    }
+
+    private Map<Integer, PendingBand> takePending() {
+        Map<Integer, PendingBand> ready = pending;
+        pending = new LinkedHashMap<>();
+        pendingOperations = 0;
+        return ready;
+    }
+
+    private void send(Map<Integer, PendingBand> ready) {
+        List<GrammyBandOperation> operations = new ArrayList<>(ready.size());
+        ready.forEach((bandId, band) -> operations.add(
+                new GrammyBandOperation(bandId, band.singles.size(), band.removals.size())));
+
+        CompletableFuture<GrammyBatchResponse> response;
+        try {
+            response = delegate.applyBatch(new GrammyBatchRequest(operations));
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+        response.whenComplete((batchResponse, throwable) -> {
+            if (throwable != null) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause()
+                        : throwable;
+                ready.values().forEach(band -> band.all().forEach(future -> future.completeExceptionally(cause)));
+                return;
+            }
+            Map<Integer, GrammyBandResult> results = batchResponse.getResults() == null
+                    ? Map.of()
+                    : batchResponse.getResults().stream()
+                            .collect(Collectors.toMap(GrammyBandResult::getBandId, Function.identity(), (a, b) -> a));
+            ready.forEach((bandId, band) -> complete(band, results.get(bandId)));
+        });
+    }
+
+    private static void complete(PendingBand band, GrammyBandResult result) {
+        if (result == null) {
+            ServiceCallException error = new ServiceCallException("Неожиданный ответ сервиса labs", HttpStatus.BAD_GATEWAY);
+            band.all().forEach(future -> future.completeExceptionally(error));
+            return;
+        }
+        HttpStatus status = HttpStatus.valueOf(result.getStatus());
+        if (status != HttpStatus.OK) {
+            band.all().forEach(future -> future.complete(error(status, result.getMessage())));
+            return;
+        }
+        band.singles.forEach(future -> future.complete(VoidResponse.builder().statusCode(HttpStatus.OK).build()));
+        int removed = result.getParticipantsRemoved() == null ? 0 : result.getParticipantsRemoved();
+        for (int i = 0; i < band.removals.size(); i++) {
+            band.removals.get(i).complete(i < removed
+                    ? VoidResponse.builder().statusCode(HttpStatus.OK).build()
+                    : error(HttpStatus.UNPROCESSABLE_ENTITY, result.getMessage()));
+        }
+    }
+
+    private static VoidResponse error(HttpStatus status, String message) {
+        return VoidResponse.builder()
+                .statusCode(status)
+                .error(new ErrorResponse(status.name(), message))
+                .build();
+    }
+
+    private static class PendingBand {
+        private final List<CompletableFuture<VoidResponse>> singles = new ArrayList<>();
+        private final List<CompletableFuture<VoidResponse>> removals = new ArrayList<>();
+
+        private List<CompletableFuture<VoidResponse>> all() {
+            List<CompletableFuture<VoidResponse>> all = new ArrayList<>(singles);
+            all.addAll(removals);
+            return all;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.evelina.grammy.service;
+
+import com.evelina.grammy.dto.ErrorResponse;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import org.springframework.stereotype.Component;
+
+import java.io.StringReader;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Разбор XML-тела ошибки от labs. JAXBContext создается один раз (он потокобезопасен и дорог в создании),
+ * Unmarshaller'ы не потокобезопасны, поэтому берутся из ограниченного пула и возвращаются после разбора.
+ */
+@Component
+public class ErrorResponseDecoder {
+
+    private static final int POOL_SIZE = 32;
+
+    private final JAXBContext jaxbContext;
+    private final Queue<Unmarshaller> unmarshallers = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    public ErrorResponseDecoder() throws JAXBException {
+        this.jaxbContext = JAXBContext.newInstance(ErrorResponse.class);
+    }
+
+    public ErrorResponse decode(String responseBody) throws JAXBException {
+        Unmarshaller unmarshaller = unmarshallers.poll();
+        if (unmarshaller == null) {
+            unmarshaller = jaxbContext.createUnmarshaller();
+        }
+        try {
+            return (ErrorResponse) unmarshaller.unmarshal(new StringReader(responseBody));
+        } finally {
+            unmarshallers.offer(unmarshaller);
+        }
+    }
+}
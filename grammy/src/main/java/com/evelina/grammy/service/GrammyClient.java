@@ -0,0 +1,24 @@
+package com.evelina.grammy.service;
+
+import com.evelina.grammy.dto.GrammyBatchRequest;
+import com.evelina.grammy.dto.GrammyBatchResponse;
+import com.evelina.grammy.dto.VoidResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Вызовы labs из grammy. Реализация выбирается параметром client.labs.mode:
+ * blocking - RestTemplate в потоке запроса, virtual-threads - RestTemplate на виртуальных потоках,
+ * reactive - неблокирующий WebClient.
+ */
+public interface GrammyClient {
+
+    String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    // idempotencyKey может быть null: тогда вызов неидемпотентен и повторяется, только если не дошел до labs
+    CompletableFuture<VoidResponse> removeParticipantFromBand(Integer bandId, String idempotencyKey);
+
+    CompletableFuture<VoidResponse> addSingleToBand(Integer bandId, String idempotencyKey);
+
+    CompletableFuture<GrammyBatchResponse> applyBatch(GrammyBatchRequest request);
+}
@@ -1,10 +1,14 @@
 package com.evelina.grammy.service;
 
 import com.evelina.grammy.dto.ErrorResponse;
+import com.evelina.grammy.dto.GrammyBatchRequest;
+import com.evelina.grammy.dto.GrammyBatchResponse;
 import com.evelina.grammy.dto.VoidResponse;
-import jakarta.xml.bind.JAXBContext;
-import jakarta.xml.bind.Unmarshaller;
+import com.evelina.grammy.exception.ServiceCallException;
+import jakarta.xml.bind.JAXBException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,19 +16,18 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.StringReader;
-
 @Service
 @RequiredArgsConstructor
 public class GrammyClientService {
 
     private final RestTemplate restTemplate;
+    private final ErrorResponseDecoder errorResponseDecoder;
 
-    public VoidResponse removeParticipantFromBand(Integer bandId) {
+    public VoidResponse removeParticipantFromBand(Integer bandId, String idempotencyKey) {
         String url = "/{bandId}/participants/remove";
 
         try {
-            ResponseEntity<Void> response = restTemplate.exchange(url, HttpMethod.DELETE, null, Void.class, bandId);
+            ResponseEntity<Void> response = restTemplate.exchange(url, HttpMethod.DELETE, withIdempotencyKey(idempotencyKey), Void.class, bandId);
             if (response.getStatusCode() == HttpStatus.OK) {
                 return VoidResponse.builder().statusCode(response.getStatusCode()).build();
             }
@@ -32,45 +35,57 @@ public class GrammyClientService {
             String responseBody = e.getResponseBodyAsString();
 
             try {
-                JAXBContext jaxbContext = JAXBContext.newInstance(ErrorResponse.class);
-                Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-                ErrorResponse errorResponse = (ErrorResponse) unmarshaller.unmarshal(new StringReader(responseBody));
+                ErrorResponse errorResponse = errorResponseDecoder.decode(responseBody);
                 return VoidResponse.builder()
                         .statusCode(e.getStatusCode())
                         .error(errorResponse)
                         .build();
-            } catch (Exception ex) {
-                System.err.println("Ошибка десериализации XML-ответа от Jetty: " + ex.getMessage());
-                throw new RuntimeException(ex);
+            } catch (JAXBException ex) {
+                throw new ServiceCallException("Некорректный ответ сервиса labs", HttpStatus.BAD_GATEWAY);
             }
-        } catch (Exception ex) {
-            System.err.println("жопа");
-            throw new RuntimeException(ex);
         }
-        throw new RuntimeException();
+        throw new ServiceCallException("Неожиданный ответ сервиса labs", HttpStatus.BAD_GATEWAY);
     }
 
-    public VoidResponse addSingleToBand(Integer bandId) {
+    public VoidResponse addSingleToBand(Integer bandId, String idempotencyKey) {
         String url = "/{bandId}/singles/add";
         try {
-            ResponseEntity<Void> response = restTemplate.exchange(url, HttpMethod.POST, null, Void.class, bandId);
+            ResponseEntity<Void> response = restTemplate.exchange(url, HttpMethod.POST, withIdempotencyKey(idempotencyKey), Void.class, bandId);
             return VoidResponse.builder().statusCode(response.getStatusCode()).build();
         } catch (HttpStatusCodeException e) {
             String responseBody = e.getResponseBodyAsString();
 
             try {
-                JAXBContext jaxbContext = JAXBContext.newInstance(ErrorResponse.class);
-                Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
-                ErrorResponse errorResponse = (ErrorResponse) unmarshaller.unmarshal(new StringReader(responseBody));
+                ErrorResponse errorResponse = errorResponseDecoder.decode(responseBody);
                 return VoidResponse.builder()
                         .statusCode(e.getStatusCode())
                         .error(errorResponse)
                         .build();
-            } catch (Exception ex) {
-                throw new RuntimeException(ex);
+            } catch (JAXBException ex) {
+                throw new ServiceCallException("Некорректный ответ сервиса labs", HttpStatus.BAD_GATEWAY);
             }
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
         }
     }
+
+    public GrammyBatchResponse applyBatch(GrammyBatchRequest request) {
+        try {
+            return restTemplate.postForObject("/batch", request, GrammyBatchResponse.class);
+        } catch (HttpStatusCodeException e) {
+            try {
+                ErrorResponse errorResponse = errorResponseDecoder.decode(e.getResponseBodyAsString());
+                throw new ServiceCallException(errorResponse.getMessage(), e.getStatusCode());
+            } catch (JAXBException ex) {
+                throw new ServiceCallException("Некорректный ответ сервиса labs", HttpStatus.BAD_GATEWAY);
+            }
+        }
+    }
+
+    private static HttpEntity<Void> withIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return null;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(GrammyClient.IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        return new HttpEntity<>(headers);
+    }
 }
@@ -0,0 +1,95 @@
+package com.evelina.grammy.service;
+
+import com.evelina.grammy.dto.ErrorResponse;
+import com.evelina.grammy.dto.GrammyBatchRequest;
+import com.evelina.grammy.dto.GrammyBatchResponse;
+import com.evelina.grammy.dto.VoidResponse;
+import com.evelina.grammy.exception.ServiceCallException;
+import jakarta.xml.bind.JAXBException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+
+@RequiredArgsConstructor
+public class ReactiveGrammyClient implements GrammyClient {
+
+    private final WebClient labsWebClient;
+    private final ErrorResponseDecoder errorResponseDecoder;
+
+    @Override
+    public CompletableFuture<VoidResponse> removeParticipantFromBand(Integer bandId, String idempotencyKey) {
+        return labsWebClient.delete()
+                .uri("/{bandId}/participants/remove", bandId)
+                .headers(headers -> setIdempotencyKey(headers, idempotencyKey))
+                .exchangeToMono(response -> {
+                    if (response.statusCode().is2xxSuccessful() && response.statusCode() != HttpStatus.OK) {
+                        return response.releaseBody().then(Mono.error(new ServiceCallException(
+                                "Неожиданный ответ сервиса labs", HttpStatus.BAD_GATEWAY)));
+                    }
+                    return toVoidResponse(response);
+                })
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<VoidResponse> addSingleToBand(Integer bandId, String idempotencyKey) {
+        return labsWebClient.post()
+                .uri("/{bandId}/singles/add", bandId)
+                .headers(headers -> setIdempotencyKey(headers, idempotencyKey))
+                .exchangeToMono(this::toVoidResponse)
+                .toFuture();
+    }
+
+    @Override
+    public CompletableFuture<GrammyBatchResponse> applyBatch(GrammyBatchRequest request) {
+        return labsWebClient.post()
+                .uri("/batch")
+                .bodyValue(request)
+                .exchangeToMono(response -> {
+                    if (response.statusCode().is2xxSuccessful()) {
+                        return response.bodyToMono(GrammyBatchResponse.class);
+                    }
+                    return response.bodyToMono(String.class)
+                            .defaultIfEmpty("")
+                            .handle((body, sink) -> {
+                                try {
+                                    sink.error(new ServiceCallException(errorResponseDecoder.decode(body).getMessage(), response.statusCode()));
+                                } catch (JAXBException ex) {
+                                    sink.error(new ServiceCallException("Некорректный ответ сервиса labs", HttpStatus.BAD_GATEWAY));
+                                }
+                            });
+                })
+                .toFuture();
+    }
+
+    private static void setIdempotencyKey(HttpHeaders headers, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+    }
+
+    private Mono<VoidResponse> toVoidResponse(ClientResponse response) {
+        if (response.statusCode().is2xxSuccessful()) {
+            return response.releaseBody()
+                    .thenReturn(VoidResponse.builder().statusCode(response.statusCode()).build());
+        }
+        return response.bodyToMono(String.class)
+                .defaultIfEmpty("")
+                .handle((body, sink) -> {
+                    try {
+                        ErrorResponse errorResponse = errorResponseDecoder.decode(body);
+                        sink.next(VoidResponse.builder()
+                                .statusCode(response.statusCode())
+                                .error(errorResponse)
+                                .build());
+                    } catch (JAXBException ex) {
+                        sink.error(new ServiceCallException("Некорректный ответ сервиса labs", HttpStatus.BAD_GATEWAY));
+                    }
+                });
+    }
+}
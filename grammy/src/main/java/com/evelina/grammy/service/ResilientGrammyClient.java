@@ -0,0 +1,147 @@
+package com.evelina.grammy.service;
+
+import com.evelina.grammy.dto.GrammyBatchRequest;
+import com.evelina.grammy.dto.GrammyBatchResponse;
+import com.evelina.grammy.dto.VoidResponse;
+import com.evelina.grammy.exception.ServiceCallException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.Retry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Вызовы labs через bulkhead, circuit breaker и retry. Отказы, при которых labs не отвечает,
+ * превращаются в ServiceCallException со статусами 502/503/504 и отдаются клиенту как ErrorResponse.
+ * Если делегат выполняет вызов в вызывающем потоке (режим blocking), попытки и паузы между ними
+ * тоже идут в этом потоке; иначе retryScheduler только отсчитывает паузу и запускает следующую попытку,
+ * а сама попытка выполняется в потоках делегата.
+ */
+@RequiredArgsConstructor
+public class ResilientGrammyClient implements GrammyClient {
+
+    private final GrammyClient delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Retry retry;
+    private final Retry idempotentRetry;
+    private final ScheduledExecutorService retryScheduler;
+    private final boolean callerRuns;
+
+    @Override
+    public CompletableFuture<VoidResponse> removeParticipantFromBand(Integer bandId, String idempotencyKey) {
+        return call(retryFor(idempotencyKey), () -> delegate.removeParticipantFromBand(bandId, idempotencyKey));
+    }
+
+    @Override
+    public CompletableFuture<VoidResponse> addSingleToBand(Integer bandId, String idempotencyKey) {
+        return call(retryFor(idempotencyKey), () -> delegate.addSingleToBand(bandId, idempotencyKey));
+    }
+
+    @Override
+    public CompletableFuture<GrammyBatchResponse> applyBatch(GrammyBatchRequest request) {
+        return call(retry, () -> delegate.applyBatch(request));
+    }
+
+    // добавление сингла и удаление участника без Idempotency-Key неидемпотентны, поэтому повторяются
+    // только вызовы, которые не дошли до labs: соединение не было установлено
+    public static boolean isNotSent(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException
+                    || cause instanceof NoRouteToHostException
+                    || cause instanceof UnknownHostException
+                    || cause instanceof org.apache.hc.client5.http.ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // с Idempotency-Key labs не выполнит операцию повторно, поэтому повторяется любой сбой транспорта
+    public static boolean isTransportFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException || cause instanceof TimeoutException
+                    || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Retry retryFor(String idempotencyKey) {
+        return idempotencyKey == null ? retry : idempotentRetry;
+    }
+
+    private <T> CompletableFuture<T> call(Retry retry, Supplier<CompletionStage<T>> call) {
+        Supplier<CompletionStage<T>> decorated = Bulkhead.decorateCompletionStage(bulkhead, call);
+        decorated = CircuitBreaker.decorateCompletionStage(circuitBreaker, decorated);
+        if (callerRuns) {
+            Supplier<CompletionStage<T>> attempt = decorated;
+            try {
+                return CompletableFuture.completedFuture(Retry.decorateSupplier(retry,
+                        () -> attempt.get().toCompletableFuture().join()).get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(toServiceCallException(unwrap(e)));
+            }
+        }
+        decorated = Retry.decorateCompletionStage(retry, retryScheduler, decorated);
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        decorated.get().whenComplete((response, throwable) -> {
+            if (throwable == null) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(toServiceCallException(unwrap(throwable)));
+            }
+        });
+        return result;
+    }
+
+    private static Throwable toServiceCallException(Throwable throwable) {
+        if (throwable instanceof ServiceCallException) {
+            return throwable;
+        }
+        if (throwable instanceof CallNotPermittedException) {
+            return new ServiceCallException("Сервис labs временно недоступен, повторите запрос позже", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        if (throwable instanceof BulkheadFullException) {
+            return new ServiceCallException("Слишком много одновременных запросов к сервису labs", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof InterruptedIOException
+                    || cause instanceof TimeoutException
+                    || cause instanceof io.netty.handler.timeout.TimeoutException) {
+                return new ServiceCallException("Сервис labs не ответил вовремя", HttpStatus.GATEWAY_TIMEOUT);
+            }
+        }
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return new ServiceCallException("Сервис labs недоступен", HttpStatus.BAD_GATEWAY);
+            }
+        }
+        return throwable;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        while ((throwable instanceof CompletionException || throwable instanceof ExecutionException)
+                && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        return throwable;
+    }
+}
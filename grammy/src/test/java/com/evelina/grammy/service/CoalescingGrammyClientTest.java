@@ -0,0 +1,245 @@
+package com.evelina.grammy.service;
+
+import com.evelina.grammy.dto.GrammyBandOperation;
+import com.evelina.grammy.dto.GrammyBandResult;
+import com.evelina.grammy.dto.GrammyBatchRequest;
+import com.evelina.grammy.dto.GrammyBatchResponse;
+import com.evelina.grammy.dto.VoidResponse;
+import com.evelina.grammy.exception.ServiceCallException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CoalescingGrammyClientTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(20);
+
+    private final FakeLabs labs = new FakeLabs();
+    private final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+    private final List<Runnable> timers = new ArrayList<>();
+    private final List<Runnable> sends = new ArrayList<>();
+    private final Executor sender = sends::add;
+    private final CoalescingGrammyClient client = new CoalescingGrammyClient(labs, scheduler, sender, WINDOW, 4);
+
+    {
+        doAnswer(invocation -> {
+            timers.add(invocation.getArgument(0));
+            return null;
+        }).when(scheduler).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void sendsOneBatchWhenWindowElapses() {
+        CompletableFuture<VoidResponse> first = client.addSingleToBand(1, null);
+        CompletableFuture<VoidResponse> second = client.addSingleToBand(1, null);
+        CompletableFuture<VoidResponse> removal = client.removeParticipantFromBand(2, null);
+
+        verify(scheduler, times(1)).schedule(any(Runnable.class), eq(WINDOW.toNanos()), eq(TimeUnit.NANOSECONDS));
+        assertThat(sends).isEmpty();
+
+        runTimers();
+        runSends();
+
+        assertThat(labs.requests).hasSize(1);
+        assertThat(labs.requests.get(0).getOperations()).containsExactly(
+                new GrammyBandOperation(1, 2, 0), new GrammyBandOperation(2, 0, 1));
+        assertThat(first).isNotDone();
+
+        labs.respond(0, result(1, 200, 2L, null, null), result(2, 200, null, 1, null));
+
+        assertThat(status(first)).isEqualTo(HttpStatus.OK);
+        assertThat(status(second)).isEqualTo(HttpStatus.OK);
+        assertThat(status(removal)).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void sendsFullBatchWithoutWaitingForWindow() {
+        client.addSingleToBand(1, null);
+        client.addSingleToBand(2, null);
+        client.addSingleToBand(3, null);
+        client.removeParticipantFromBand(3, null);
+        CompletableFuture<VoidResponse> next = client.addSingleToBand(4, null);
+
+        // пакет ушел отправителю сразу по достижении max-batch-size, таймер больше ничего не отправляет
+        assertThat(sends).hasSize(1);
+        runSends();
+        assertThat(labs.requests.get(0).getOperations()).containsExactly(new GrammyBandOperation(1, 1, 0),
+                new GrammyBandOperation(2, 1, 0), new GrammyBandOperation(3, 1, 1));
+
+        runTimers();
+        runSends();
+        assertThat(labs.requests).hasSize(2);
+        assertThat(labs.requests.get(1).getOperations()).extracting(GrammyBandOperation::getBandId).containsExactly(4);
+        assertThat(next).isNotDone();
+    }
+
+    @Test
+    void schedulesNewWindowAfterFlush() {
+        client.addSingleToBand(1, null);
+        runTimers();
+        client.addSingleToBand(1, null);
+
+        verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    }
+
+    @Test
+    void failsBatchWhenSenderRejectsIt() {
+        CoalescingGrammyClient rejecting = new CoalescingGrammyClient(labs, scheduler, command -> {
+            throw new RejectedExecutionException("full");
+        }, WINDOW, 3);
+        CompletableFuture<VoidResponse> single = rejecting.addSingleToBand(1, null);
+        CompletableFuture<VoidResponse> removal = rejecting.removeParticipantFromBand(2, null);
+
+        runTimers();
+
+        assertThat(labs.requests).isEmpty();
+        assertThat(failure(single)).isInstanceOf(ServiceCallException.class);
+        assertThat(((ServiceCallException) failure(removal)).getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @Test
+    void mapsPartialRemovalsInCallOrder() {
+        CompletableFuture<VoidResponse> first = client.removeParticipantFromBand(1, null);
+        CompletableFuture<VoidResponse> second = client.removeParticipantFromBand(1, null);
+        CompletableFuture<VoidResponse> single = client.addSingleToBand(1, null);
+        runTimers();
+        runSends();
+
+        assertThat(labs.requests.get(0).getOperations()).containsExactly(new GrammyBandOperation(1, 1, 2));
+        labs.respond(0, result(1, 200, 1L, 1, "В группе остался один участник"));
+
+        assertThat(status(first)).isEqualTo(HttpStatus.OK);
+        assertThat(status(single)).isEqualTo(HttpStatus.OK);
+        VoidResponse rejected = second.join();
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(rejected.getError().getMessage()).isEqualTo("В группе остался один участник");
+    }
+
+    @Test
+    void passesBandErrorToEveryCallOfThatBand() {
+        CompletableFuture<VoidResponse> missingSingle = client.addSingleToBand(1, null);
+        CompletableFuture<VoidResponse> missingRemoval = client.removeParticipantFromBand(1, null);
+        CompletableFuture<VoidResponse> other = client.addSingleToBand(2, null);
+        runTimers();
+        runSends();
+
+        labs.respond(0, result(1, 404, null, null, "Группа с ID 1 не найдена"), result(2, 200, 1L, null, null));
+
+        assertThat(status(missingSingle)).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(status(missingRemoval)).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(status(other)).isEqualTo(HttpStatus.OK);
+    }
+
+    @Test
+    void failsCallsWithoutResultInResponse() {
+        CompletableFuture<VoidResponse> answered = client.addSingleToBand(1, null);
+        CompletableFuture<VoidResponse> missing = client.addSingleToBand(2, null);
+        runTimers();
+        runSends();
+
+        labs.respond(0, result(1, 200, 1L, null, null));
+
+        assertThat(status(answered)).isEqualTo(HttpStatus.OK);
+        assertThat(((ServiceCallException) failure(missing)).getStatusCode()).isEqualTo(HttpStatus.BAD_GATEWAY);
+    }
+
+    @Test
+    void failsWholeBatchWhenCallFails() {
+        CompletableFuture<VoidResponse> first = client.addSingleToBand(1, null);
+        CompletableFuture<VoidResponse> second = client.removeParticipantFromBand(2, null);
+        runTimers();
+        runSends();
+
+        ServiceCallException error = new ServiceCallException("labs недоступен", HttpStatus.SERVICE_UNAVAILABLE);
+        labs.responses.get(0).completeExceptionally(error);
+
+        assertThat(failure(first)).isSameAs(error);
+        assertThat(failure(second)).isSameAs(error);
+    }
+
+    @Test
+    void sendsIdempotentCallsOneByOne() {
+        client.addSingleToBand(1, "key-1");
+        client.removeParticipantFromBand(1, "key-2");
+
+        assertThat(labs.singles).containsExactly("key-1");
+        assertThat(labs.removals).containsExactly("key-2");
+        assertThat(timers).isEmpty();
+    }
+
+    private void runTimers() {
+        List<Runnable> due = new ArrayList<>(timers);
+        timers.clear();
+        due.forEach(Runnable::run);
+    }
+
+    private void runSends() {
+        List<Runnable> due = new ArrayList<>(sends);
+        sends.clear();
+        due.forEach(Runnable::run);
+    }
+
+    private static HttpStatus status(CompletableFuture<VoidResponse> future) {
+        return HttpStatus.valueOf(future.join().getStatusCode().value());
+    }
+
+    private static Throwable failure(CompletableFuture<VoidResponse> future) {
+        assertThatThrownBy(future::get).isInstanceOf(ExecutionException.class);
+        return future.handle((response, throwable) -> throwable).join();
+    }
+
+    private static GrammyBandResult result(int bandId, int status, Long singlesAdded, Integer participantsRemoved, String message) {
+        return new GrammyBandResult(bandId, status, singlesAdded, participantsRemoved, message);
+    }
+
+    private static class FakeLabs implements GrammyClient {
+
+        private final List<GrammyBatchRequest> requests = new ArrayList<>();
+        private final List<CompletableFuture<GrammyBatchResponse>> responses = new ArrayList<>();
+        private final List<String> singles = new ArrayList<>();
+        private final List<String> removals = new ArrayList<>();
+
+        @Override
+        public CompletableFuture<VoidResponse> removeParticipantFromBand(Integer bandId, String idempotencyKey) {
+            removals.add(idempotencyKey);
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public CompletableFuture<VoidResponse> addSingleToBand(Integer bandId, String idempotencyKey) {
+            singles.add(idempotencyKey);
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public CompletableFuture<GrammyBatchResponse> applyBatch(GrammyBatchRequest request) {
+            CompletableFuture<GrammyBatchResponse> response = new CompletableFuture<>();
+            requests.add(request);
+            responses.add(response);
+            return response;
+        }
+
+        private void respond(int index, GrammyBandResult... results) {
+            responses.get(index).complete(new GrammyBatchResponse(List.of(results)));
+        }
+    }
+}
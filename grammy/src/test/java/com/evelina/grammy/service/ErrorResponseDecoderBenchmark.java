@@ -0,0 +1,65 @@
+package com.evelina.grammy.service;
+
+import com.evelina.grammy.dto.ErrorResponse;
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор тела ошибки labs: общий JAXBContext с пулом Unmarshaller'ов против прежнего
+ * JAXBContext.newInstance на каждый ответ и против нового Unmarshaller на каждый ответ.
+ * Запуск: mvn -Pbenchmark test -Djmh.include=ErrorResponseDecoder
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ErrorResponseDecoderBenchmark {
+
+    private static final String BODY = "<ErrorResponse><error>VALIDATION_FAILED</error>"
+            + "<errors><field>name</field><message>Название не может быть пустым</message></errors>"
+            + "<errors><field>numberOfParticipants</field><message>Значение должно быть больше 0</message></errors>"
+            + "<message>Ошибка валидации</message><timestamp>2026-10-18T00:00:00Z</timestamp>"
+            + "<path>/bands/1</path></ErrorResponse>";
+
+    private ErrorResponseDecoder decoder;
+    private JAXBContext sharedContext;
+
+    @Setup
+    public void setUp() throws JAXBException {
+        decoder = new ErrorResponseDecoder();
+        sharedContext = JAXBContext.newInstance(ErrorResponse.class);
+    }
+
+    @Benchmark
+    public ErrorResponse pooledUnmarshaller() throws JAXBException {
+        return decoder.decode(BODY);
+    }
+
+    @Benchmark
+    public ErrorResponse unmarshallerPerCall() throws JAXBException {
+        return (ErrorResponse) sharedContext.createUnmarshaller().unmarshal(new StringReader(BODY));
+    }
+
+    @Benchmark
+    public ErrorResponse contextPerCall() throws JAXBException {
+        return (ErrorResponse) JAXBContext.newInstance(ErrorResponse.class).createUnmarshaller()
+                .unmarshal(new StringReader(BODY));
+    }
+}
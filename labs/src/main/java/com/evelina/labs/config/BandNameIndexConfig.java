@@ -0,0 +1,31 @@
+package com.evelina.labs.config;
+
+import com.evelina.labs.repository.BandNameIndex;
+import com.evelina.labs.repository.MusicBandRepository;
+import com.evelina.labs.repository.NgramBandNameIndex;
+import com.evelina.labs.repository.TrigramBandNameIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BandNameIndexConfig {
+
+    @Value("${bands.search.engine:auto}")
+    private String engine;
+
+    @Value("${spring.datasource.url}")
+    private String datasourceUrl;
+
+    @Bean
+    public BandNameIndex bandNameIndex(MusicBandRepository musicBandRepository) {
+        boolean trigram = switch (engine) {
+            case "trigram" -> true;
+            case "ngram" -> false;
+            case "auto" -> DatabaseDriver.fromJdbcUrl(datasourceUrl) == DatabaseDriver.POSTGRESQL;
+            default -> throw new IllegalStateException("Неизвестное значение bands.search.engine: " + engine);
+        };
+        return trigram ? new TrigramBandNameIndex() : new NgramBandNameIndex(musicBandRepository);
+    }
+}
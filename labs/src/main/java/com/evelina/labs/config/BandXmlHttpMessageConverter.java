@@ -0,0 +1,164 @@
+package com.evelina.labs.config;
+
+import com.evelina.labs.dto.BandSearchResponse;
+import com.evelina.labs.dto.MusicBandView;
+import com.evelina.labs.dto.Pagination;
+import com.evelina.labs.models.Coordinates;
+import com.evelina.labs.models.Label;
+import com.evelina.labs.models.MusicBand;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Запись MusicBand и BandSearchResponse в XML напрямую через StAX в поток ответа, без построения
+ * дерева сериализаторов Jackson. Формат совпадает с тем, что выдает Jackson XML: те же имена элементов,
+ * пустые элементы для null-полей, поля MusicBandView со значением null пропускаются.
+ * Остальные типы и чтение тела запроса по-прежнему обрабатывает Jackson.
+ */
+@Component
+public class BandXmlHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+
+    public BandXmlHttpMessageConverter() {
+        super(MediaType.APPLICATION_XML);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == MusicBand.class || clazz == BandSearchResponse.class;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Чтение " + clazz.getSimpleName() + " не поддерживается", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        try {
+            XMLStreamWriter writer = outputFactory.createXMLStreamWriter(outputMessage.getBody(), "UTF-8");
+            if (body instanceof MusicBand band) {
+                writeBand(writer, "MusicBand", band);
+            } else {
+                writeSearchResponse(writer, (BandSearchResponse) body);
+            }
+            writer.flush();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new HttpMessageNotWritableException("Не удалось записать XML: " + e.getMessage(), e);
+        }
+    }
+
+    private void writeSearchResponse(XMLStreamWriter writer, BandSearchResponse response) throws XMLStreamException {
+        writer.writeStartElement("BandSearchResponse");
+        Pagination pagination = response.getPagination();
+        if (pagination == null) {
+            writer.writeEmptyElement("pagination");
+        } else {
+            writer.writeStartElement("pagination");
+            writeValue(writer, "page", pagination.getPage());
+            writeValue(writer, "totalPages", pagination.getTotalPages());
+            writeValue(writer, "totalCount", pagination.getTotalCount());
+            writeValue(writer, "size", pagination.getSize());
+            writeValue(writer, "hasNext", pagination.getHasNext());
+            writeValue(writer, "nextCursor", pagination.getNextCursor());
+            writer.writeEndElement();
+        }
+        List<?> bands = response.getBands();
+        // для null-списка Jackson не пишет элемент, для пустого - пишет пустой
+        if (bands != null && bands.isEmpty()) {
+            writer.writeEmptyElement("bands");
+        } else if (bands != null) {
+            writer.writeStartElement("bands");
+            for (Object band : bands) {
+                if (band instanceof MusicBand musicBand) {
+                    writeBand(writer, "bands", musicBand);
+                } else {
+                    writeView(writer, (MusicBandView) band);
+                }
+            }
+            writer.writeEndElement();
+        }
+        writer.writeEndElement();
+    }
+
+    private void writeBand(XMLStreamWriter writer, String element, MusicBand band) throws XMLStreamException {
+        writer.writeStartElement(element);
+        writeValue(writer, "id", band.getId());
+        writeValue(writer, "name", band.getName());
+        writeCoordinates(writer, band.getCoordinates());
+        writeValue(writer, "creationDate", band.getCreationDate());
+        writeValue(writer, "numberOfParticipants", band.getNumberOfParticipants());
+        writeValue(writer, "singlesCount", band.getSinglesCount());
+        writeValue(writer, "albumsCount", band.getAlbumsCount());
+        writeValue(writer, "genre", band.getGenre());
+        writeLabel(writer, band.getLabel());
+        writer.writeEndElement();
+    }
+
+    private void writeView(XMLStreamWriter writer, MusicBandView band) throws XMLStreamException {
+        writer.writeStartElement("bands");
+        writeValue(writer, "id", band.getId());
+        if (band.getName() != null) writeValue(writer, "name", band.getName());
+        if (band.getCoordinates() != null) writeCoordinates(writer, band.getCoordinates());
+        if (band.getCreationDate() != null) writeValue(writer, "creationDate", band.getCreationDate());
+        if (band.getNumberOfParticipants() != null) writeValue(writer, "numberOfParticipants", band.getNumberOfParticipants());
+        if (band.getSinglesCount() != null) writeValue(writer, "singlesCount", band.getSinglesCount());
+        if (band.getAlbumsCount() != null) writeValue(writer, "albumsCount", band.getAlbumsCount());
+        if (band.getGenre() != null) writeValue(writer, "genre", band.getGenre());
+        if (band.getLabel() != null) writeLabel(writer, band.getLabel());
+        writer.writeEndElement();
+    }
+
+    private void writeCoordinates(XMLStreamWriter writer, Coordinates coordinates) throws XMLStreamException {
+        if (coordinates == null) {
+            writer.writeEmptyElement("coordinates");
+            return;
+        }
+        writer.writeStartElement("coordinates");
+        writeValue(writer, "x", coordinates.getX());
+        writeValue(writer, "y", coordinates.getY());
+        writer.writeEndElement();
+    }
+
+    private void writeLabel(XMLStreamWriter writer, Label label) throws XMLStreamException {
+        if (label == null) {
+            writer.writeEmptyElement("label");
+            return;
+        }
+        writer.writeStartElement("label");
+        writeValue(writer, "sales", label.getSales());
+        writer.writeEndElement();
+    }
+
+    private void writeValue(XMLStreamWriter writer, String element, Object value) throws XMLStreamException {
+        if (value == null) {
+            writer.writeEmptyElement(element);
+            return;
+        }
+        writer.writeStartElement(element);
+        writer.writeCharacters(value instanceof LocalDateTime dateTime
+                ? DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dateTime)
+                : value.toString());
+        writer.writeEndElement();
+    }
+}
@@ -0,0 +1,55 @@
+package com.evelina.labs.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "bands.db.limiter.enabled", havingValue = "true", matchIfMissing = true)
+public class DataSourceLimiterConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionLimiterPostProcessor(
+            @Value("${bands.db.limiter.max-concurrent:0}") int maxConcurrent,
+            @Value("${bands.db.limiter.max-waiting:200}") int maxWaiting,
+            @Value("${bands.db.limiter.acquire-timeout:2s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionLimitingDataSource) {
+                    return bean;
+                }
+                // по умолчанию допускаем к пулу столько потоков, сколько в нем соединений
+                int permits = maxConcurrent > 0 ? maxConcurrent
+                        : bean instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : 10;
+                return new ConnectionLimitingDataSource(dataSource, permits, maxWaiting, acquireTimeout);
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder connectionLimiterMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConnectionLimitingDataSource limiter) {
+                Gauge.builder("bands.db.limiter.available", limiter, ConnectionLimitingDataSource::getAvailablePermits)
+                        .description("Свободные разрешения на получение соединения")
+                        .register(registry);
+                Gauge.builder("bands.db.limiter.waiting", limiter, ConnectionLimitingDataSource::getWaiting)
+                        .description("Потоки, ожидающие соединения")
+                        .register(registry);
+                FunctionCounter.builder("bands.db.limiter.rejected", limiter, ConnectionLimitingDataSource::getRejected)
+                        .description("Запросы соединения, отклоненные из-за переполненной очереди или таймаута")
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package com.evelina.labs.controller;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Представления ответов /bands: XML по умолчанию, JSON и CBOR - только если клиент запросил их в Accept.
+ */
+final class BandMediaTypes {
+
+    private static final List<MediaType> SUPPORTED =
+            List.of(MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR);
+
+    private BandMediaTypes() {
+    }
+
+    static MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return MediaType.APPLICATION_XML;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_XML;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType acceptedType : accepted) {
+            for (MediaType supported : SUPPORTED) {
+                if (acceptedType.includes(supported)) {
+                    return supported;
+                }
+            }
+        }
+        return MediaType.APPLICATION_XML;
+    }
+
+    /**
+     * Суффикс ETag: разные представления одной версии группы не должны считаться одинаковыми.
+     */
+    static String eTagSuffix(MediaType mediaType) {
+        return MediaType.APPLICATION_XML.equals(mediaType) ? "" : "." + mediaType.getSubtype();
+    }
+}
@@ -1,21 +1,29 @@
 package com.evelina.labs.controller;
 
 import com.evelina.labs.exception.InvalidParameterException;
+import com.evelina.labs.exception.PreconditionFailedException;
+import com.evelina.labs.exception.RequestInProgressException;
 import com.evelina.labs.models.ErrorResponse;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import org.springframework.web.servlet.View;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -31,6 +39,13 @@ public class GlobalExceptionHandler {
 
     private final View error;
 
+    private static MediaType errorMediaType() {
+        String accept = RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest().getHeader(HttpHeaders.ACCEPT)
+                : null;
+        return BandMediaTypes.negotiate(accept);
+    }
+
 
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponse> handleConstraintViolation(MethodArgumentNotValidException ex) {
@@ -50,7 +65,7 @@ public class GlobalExceptionHandler {
                 "/bands"
         );
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .contentType(MediaType.APPLICATION_XML)
+                .contentType(errorMediaType())
                 .body(errorResponse);
     }
 
@@ -67,7 +82,7 @@ public class GlobalExceptionHandler {
                 "/bands/" + paramValue
         );
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .contentType(MediaType.APPLICATION_XML)
+                .contentType(errorMediaType())
                 .body(errorResponse);
     }
 
@@ -87,7 +102,7 @@ public class GlobalExceptionHandler {
         );
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST) // <-- Возвращаем 400
-                .contentType(MediaType.APPLICATION_XML)
+                .contentType(errorMediaType())
                 .body(errorResponse);
     }
     private ErrorResponse createErrorResponse(String code, String message) {
@@ -100,7 +115,7 @@ public class GlobalExceptionHandler {
     public ResponseEntity<ErrorResponse> handleInvalidParameterException(InvalidParameterException ex) {
         ErrorResponse error = createErrorResponse("BAD_REQUEST", ex.getMessage());
         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                .contentType(MediaType.APPLICATION_XML)
+                .contentType(errorMediaType())
                 .body(error);
     }
 
@@ -113,7 +128,7 @@ public class GlobalExceptionHandler {
                 "/bands"
         );
         return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
-                .contentType(MediaType.APPLICATION_XML)
+                .contentType(errorMediaType())
                 .body(error);
     }
 
@@ -127,7 +142,43 @@ public class GlobalExceptionHandler {
                 "/bands"
         );
         return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
-                .contentType(MediaType.APPLICATION_XML)
+                .contentType(errorMediaType())
+                .body(error);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponse> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        ErrorResponse error = createErrorResponse("CONFLICT",
+                "Группа была изменена другим запросом, повторите изменение");
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .contentType(errorMediaType())
+                .body(error);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handlePreconditionFailed(PreconditionFailedException ex) {
+        ErrorResponse error = createErrorResponse("PRECONDITION_FAILED", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
+                .contentType(errorMediaType())
+                .body(error);
+    }
+
+    @ExceptionHandler(RequestInProgressException.class)
+    public ResponseEntity<ErrorResponse> handleRequestInProgress(RequestInProgressException ex) {
+        ErrorResponse error = createErrorResponse("CONFLICT", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(errorMediaType())
+                .body(error);
+    }
+
+    @ExceptionHandler({CannotCreateTransactionException.class, CannotGetJdbcConnectionException.class})
+    public ResponseEntity<ErrorResponse> handleDatabaseUnavailable(Exception ex) {
+        ErrorResponse error = createErrorResponse("SERVICE_UNAVAILABLE",
+                "Нет свободных соединений с базой данных, повторите запрос позже");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(errorMediaType())
                 .body(error);
     }
 
@@ -141,7 +192,7 @@ public class GlobalExceptionHandler {
                 "/bands/"
         );
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .contentType(MediaType.APPLICATION_XML)
+                .contentType(errorMediaType())
                 .body(errorResponse);
     }
 
@@ -155,7 +206,7 @@ public class GlobalExceptionHandler {
                 "/bands"
         );
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .contentType(MediaType.APPLICATION_XML)
+                .contentType(errorMediaType())
                 .body(error);
     }
 
@@ -165,7 +216,8 @@ public class GlobalExceptionHandler {
         public void addCorsMappings(CorsRegistry registry) {
             registry.addMapping("/**")
                     .allowedOrigins("*")
-                    .allowedMethods("*");
+                    .allowedMethods("*")
+                    .exposedHeaders(HttpHeaders.ETAG);
         }
     }
 
@@ -1,8 +1,14 @@
 package com.evelina.labs.controller;
 
+import com.evelina.labs.dto.GrammyBatchRequest;
+import com.evelina.labs.dto.GrammyBatchResponse;
 import com.evelina.labs.models.MusicBand;
 import com.evelina.labs.repository.MusicBandRepository;
+import com.evelina.labs.service.IdempotencyService;
+import com.evelina.labs.service.MusicBandBatchService;
 import com.evelina.labs.service.MusicBandService;
+import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -10,18 +16,39 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/grammy")
 public class GrammyController {
     private final MusicBandService musicBandService;
-    public GrammyController(MusicBandService musicBandService) {
+    private final MusicBandBatchService musicBandBatchService;
+    private final IdempotencyService idempotencyService;
+    public GrammyController(MusicBandService musicBandService,
+                            MusicBandBatchService musicBandBatchService,
+                            IdempotencyService idempotencyService) {
         this.musicBandService = musicBandService;
+        this.musicBandBatchService = musicBandBatchService;
+        this.idempotencyService = idempotencyService;
+    }
+
+    @PostMapping(path = "/band/batch", consumes = MediaType.APPLICATION_XML_VALUE, produces = MediaType.APPLICATION_XML_VALUE)
+    public ResponseEntity<GrammyBatchResponse> applyBatch(@Valid @RequestBody GrammyBatchRequest batchRequest) {
+        return ResponseEntity.ok(musicBandBatchService.applyGrammyOperations(batchRequest.getOperations()));
     }
 
     @PostMapping("/band/{band-id}/singles/add")
-    public ResponseEntity<Void> addSingle(@PathVariable("band-id") Integer bandId) {
-        musicBandService.addSingleToBand(bandId);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<Void> addSingle(@PathVariable("band-id") Integer bandId,
+                                          @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        boolean executed = idempotencyService.execute(idempotencyKey, "singles/add:" + bandId,
+                () -> musicBandService.addSingleToBand(bandId));
+        return ok(executed);
     }
     @DeleteMapping("/band/{band-id}/participants/remove")
-    public ResponseEntity<Void> removeParticipant(@PathVariable("band-id") Integer bandId) {
-        musicBandService.removeParticipantFromBand(bandId);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<Void> removeParticipant(@PathVariable("band-id") Integer bandId,
+                                                  @RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        boolean executed = idempotencyService.execute(idempotencyKey, "participants/remove:" + bandId,
+                () -> musicBandService.removeParticipantFromBand(bandId));
+        return ok(executed);
+    }
+
+    private static ResponseEntity<Void> ok(boolean executed) {
+        return executed
+                ? ResponseEntity.ok().build()
+                : ResponseEntity.ok().header(IdempotencyService.REPLAYED_HEADER, "true").build();
     }
 }
@@ -2,17 +2,28 @@ package com.evelina.labs.controller;
 
 import com.evelina.labs.dto.*;
 import com.evelina.labs.exception.InvalidParameterException;
+import com.evelina.labs.exception.PreconditionFailedException;
 import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.repository.BandCursor;
+import com.evelina.labs.repository.BandProjection;
 import com.evelina.labs.repository.MusicBandRepository;
+import com.evelina.labs.service.BandWriteGeneration;
+import com.evelina.labs.service.MusicBandBatchService;
 import com.evelina.labs.service.MusicBandService;
+import com.evelina.labs.service.MusicBandTransferService;
+import com.evelina.labs.service.SearchSignature;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -20,19 +31,122 @@ import org.springframework.stereotype.Controller;
 import java.util.Arrays;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
+import java.util.function.Supplier;
 
 @RestController
 @Validated
-@RequestMapping(path = "/bands", produces = MediaType.APPLICATION_XML_VALUE)
+@RequestMapping(path = "/bands", produces = {MediaType.APPLICATION_XML_VALUE, MediaType.APPLICATION_JSON_VALUE,
+        MediaType.APPLICATION_CBOR_VALUE})
 public class MusicBandController {
 
     private final MusicBandService musicBandService;
+    private final MusicBandBatchService musicBandBatchService;
+    private final MusicBandTransferService musicBandTransferService;
+    private final BandWriteGeneration writeGeneration;
+    private final Duration exportTimeout;
 
-    public MusicBandController(MusicBandService musicBandService) {
+    public MusicBandController(MusicBandService musicBandService,
+                               MusicBandBatchService musicBandBatchService,
+                               MusicBandTransferService musicBandTransferService,
+                               BandWriteGeneration writeGeneration,
+                               @Value("${bands.transfer.export-timeout:30m}") Duration exportTimeout) {
         this.musicBandService = musicBandService;
+        this.musicBandBatchService = musicBandBatchService;
+        this.musicBandTransferService = musicBandTransferService;
+        this.writeGeneration = writeGeneration;
+        this.exportTimeout = exportTimeout;
+    }
+
+    /**
+     * Сильный ETag группы: версия строки и число синглов, которое может включать еще не записанные
+     * приращения из SinglesWriteBehindBuffer.
+     */
+    private static String eTagOf(MusicBand band, MediaType mediaType) {
+        return "\"" + band.getVersion() + "-" + band.getSinglesCount() + BandMediaTypes.eTagSuffix(mediaType) + "\"";
+    }
+
+    /**
+     * Состояния группы из If-Match: версия и singlesCount, суффикс представления не сравнивается.
+     * Без заголовка и с "*" подходит любое состояние (null): остается только проверка @Version при записи.
+     * Слабые и нераспознанные теги не совпадают ни с одним.
+     */
+    private static List<MusicBandService.Revision> revisionsOf(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            return null;
+        }
+        List<MusicBandService.Revision> revisions = new ArrayList<>();
+        for (String part : ifMatch.split(",")) {
+            String tag = part.trim();
+            if (tag.equals("*")) {
+                return null;
+            }
+            int dash = tag.indexOf('-');
+            if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"") || dash < 2) {
+                continue;
+            }
+            String singles = tag.substring(dash + 1, tag.length() - 1);
+            int suffix = singles.indexOf('.');
+            singles = suffix < 0 ? singles : singles.substring(0, suffix);
+            try {
+                revisions.add(new MusicBandService.Revision(Long.parseLong(tag.substring(1, dash)),
+                        singles.equals("null") ? null : Long.valueOf(singles)));
+            } catch (NumberFormatException ignored) {
+                // чужой тег
+            }
+        }
+        return revisions;
+    }
+
+    /**
+     * SHA-256 канонической строки параметров поиска, в base64url.
+     */
+    private static String digestOf(String canonicalSignature) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalSignature.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TreeSet<String> canonicalFields(BandProjection projection) {
+        return projection == null ? null : new TreeSet<>(projection.getFields());
+    }
+
+    /**
+     * Слабый ETag результата поиска: поколение записи таблицы на момент до выполнения запроса
+     * и дайджест параметров поиска. Если он совпадает с присланным в If-None-Match, запрос не выполняется.
+     * Поиск идет через POST, а 304 допустим только для GET и HEAD, поэтому совпадение отвечается 412 (RFC 9110, 13.1.2).
+     * "*" не учитывается: это условие "ресурса еще нет" для создания, сравнивать с ним результат поиска бессмысленно.
+     */
+    private ResponseEntity<BandSearchResponse> searchResponse(String ifNoneMatch, String accept, String canonicalSignature,
+                                                              Supplier<BandSearchResponse> search) {
+        MediaType mediaType = BandMediaTypes.negotiate(accept);
+        String eTag = "W/\"" + writeGeneration.tag() + "." + digestOf(canonicalSignature)
+                + BandMediaTypes.eTagSuffix(mediaType) + "\"";
+        if (ifNoneMatch != null && Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .anyMatch(tag -> stripWeak(tag).equals(stripWeak(eTag)))) {
+            throw new PreconditionFailedException("Результат поиска не изменился с момента получения ETag " + eTag);
+        }
+        return ResponseEntity.ok().contentType(mediaType).eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(search.get());
+    }
+
+    private static String stripWeak(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
     }
 
     private Sort parseSort(String sortString) {
@@ -42,7 +156,7 @@ public class MusicBandController {
         try {
             String[] parts = sortString.split(";")[0].split(",");
             String field = parts[0];
-            if (!Arrays.asList("id", "name", "creationDate", "numberOfParticipants", "singlesCount", "albumsCount").contains(field)) {
+            if (!BandCursor.SORTABLE_FIELDS.contains(field)) {
                 throw new InvalidParameterException("Поле для сортировки '" + field + "' недопустимо.");
             }
 
@@ -56,39 +170,119 @@ public class MusicBandController {
         }
     }
 
-    @PostMapping(path = "/filters", produces = MediaType.APPLICATION_XML_VALUE, consumes = MediaType.APPLICATION_XML_VALUE)
+    @PostMapping(path = "/filters", consumes = MediaType.APPLICATION_XML_VALUE)
     public ResponseEntity<BandSearchResponse> getMusicBandsWithFilters(
             @RequestParam(defaultValue = "1") @Min(1) int page,
             @RequestParam(defaultValue = "10") @Min(1) @Max(100) int size,
             @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count,
+            @RequestParam(required = false) String fields,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
             @Valid @RequestBody(required = false)BandSearchRequest bandSearchRequest
             ) {
         Sort sortObject = parseSort(sort);
+        CountMode countMode = CountMode.parse(count);
+        BandProjection projection = BandProjection.parse(fields);
+        BandSearchRequest request = (bandSearchRequest != null) ? bandSearchRequest : new BandSearchRequest();
+        String signature = SearchSignature.of(request).canonical(page, size, sortObject, cursor, countMode,
+                canonicalFields(projection));
+
+        if (cursor != null) {
+            return searchResponse(ifNoneMatch, accept, signature,
+                    () -> getMusicBandsAfterCursor(sortObject, cursor, size, request, projection));
+        }
 
         PageRequest pageable = PageRequest.of(page - 1, size, sortObject);
-        BandSearchRequest request = (bandSearchRequest != null) ? bandSearchRequest : new BandSearchRequest();
-        Page<MusicBand> bandPage = musicBandService.getBandsWithFilterAndPagination(request, pageable);
+        return searchResponse(ifNoneMatch, accept, signature, () -> toSearchResponse(
+                musicBandService.getBandsWithFilterAndPagination(request, pageable, countMode, projection), page, size, projection));
+    }
+
+    private static List<?> toBands(List<MusicBand> bands, BandProjection projection) {
+        if (projection == null) {
+            return bands;
+        }
+        return bands.stream().map(band -> MusicBandView.of(band, projection.getFields())).toList();
+    }
 
+    private BandSearchResponse toSearchResponse(Slice<MusicBand> bandPage, int page, int size, BandProjection projection) {
         BandSearchResponse response = new BandSearchResponse();
         response.setPage(page);
         response.setSize(size);
-        response.setTotalPages(bandPage.getTotalPages());
-        response.setTotalCount(bandPage.getTotalElements());
-        response.setBands(bandPage.getContent());
+        if (bandPage instanceof Page<MusicBand> countedPage) {
+            response.setTotalPages(countedPage.getTotalPages());
+            response.setTotalCount(countedPage.getTotalElements());
+        }
+        response.setHasNext(bandPage.hasNext());
+        response.setBands(toBands(bandPage.getContent(), projection));
+        return response;
+    }
+
+    private BandSearchResponse getMusicBandsAfterCursor(Sort sortObject, String cursor, int size,
+                                                        BandSearchRequest request, BandProjection projection) {
+        Sort.Order order = sortObject.isSorted() ? sortObject.iterator().next() : Sort.Order.asc("id");
+        Slice<MusicBand> bandSlice = musicBandService.getBandsWithFilterAfterCursor(request, order, cursor, size, projection);
 
-        return ResponseEntity.ok(response);
+        BandSearchResponse response = new BandSearchResponse();
+        response.setSize(size);
+        response.setHasNext(bandSlice.hasNext());
+        response.setBands(toBands(bandSlice.getContent(), projection));
+        if (bandSlice.hasNext()) {
+            List<MusicBand> bands = bandSlice.getContent();
+            response.setNextCursor(BandCursor.after(order, bands.get(bands.size() - 1)).encode());
+        }
+
+        return response;
     }
 
-    @PostMapping(consumes = MediaType.APPLICATION_XML_VALUE, produces = MediaType.APPLICATION_XML_VALUE)
+    @PostMapping(consumes = MediaType.APPLICATION_XML_VALUE)
     public ResponseEntity<MusicBand> createMusicBand(@Valid @RequestBody MusicBandRequest musicBandRequest) {
         MusicBand createdMusicBand = musicBandService.createMusicBand(musicBandRequest);
         return new ResponseEntity<>(createdMusicBand, HttpStatus.CREATED);
     }
 
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_XML_VALUE)
+    public ResponseEntity<BandBatchResponse> createMusicBands(@Valid @RequestBody BandBatchRequest batchRequest) {
+        return ResponseEntity.ok(musicBandBatchService.createMusicBands(batchRequest.getBands()));
+    }
+
+    @PutMapping(path = "/batch", consumes = MediaType.APPLICATION_XML_VALUE)
+    public ResponseEntity<BandBatchResponse> updateMusicBands(@Valid @RequestBody BandBatchRequest batchRequest) {
+        return ResponseEntity.ok(musicBandBatchService.updateMusicBands(batchRequest.getBands()));
+    }
+
+    @DeleteMapping(path = "/batch", consumes = MediaType.APPLICATION_XML_VALUE)
+    public ResponseEntity<BandBatchResponse> deleteMusicBands(@Valid @RequestBody BandIdsRequest idsRequest) {
+        return ResponseEntity.ok(musicBandBatchService.deleteMusicBands(idsRequest.getIds()));
+    }
+
+    /**
+     * Выгрузка всего каталога идет дольше таймаута async-запроса по умолчанию (30 с в Jetty),
+     * поэтому таймаут задается явно для этого запроса: bands.transfer.export-timeout.
+     */
+    @GetMapping(path = "/export", produces = MediaType.APPLICATION_XML_VALUE)
+    public WebAsyncTask<Void> exportMusicBands(HttpServletResponse response) {
+        response.setContentType(MediaType.APPLICATION_XML_VALUE);
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            musicBandTransferService.exportMusicBands(response.getOutputStream());
+            return null;
+        });
+    }
+
+    @PostMapping(path = "/import", consumes = MediaType.APPLICATION_XML_VALUE)
+    public ResponseEntity<BandImportResponse> importMusicBands(InputStream body) {
+        return ResponseEntity.ok(musicBandTransferService.importMusicBands(body));
+    }
+
     @GetMapping("/{id}")
-    public ResponseEntity<MusicBand> getMusicBandById(@PathVariable @Min(1) Integer id) {
+    public ResponseEntity<MusicBand> getMusicBandById(@PathVariable @Min(1) Integer id,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType mediaType = BandMediaTypes.negotiate(accept);
+        // при совпадении If-None-Match Spring отвечает 304 по ETag, не сериализуя тело
         return musicBandService.getMusicBandById(id)
-                .map(ResponseEntity::ok)
+                .map(band -> ResponseEntity.ok().contentType(mediaType).eTag(eTagOf(band, mediaType))
+                        .varyBy(HttpHeaders.ACCEPT).body(band))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -103,41 +297,46 @@ public class MusicBandController {
     }
 
     @PutMapping ("/{id}")
-    public ResponseEntity<MusicBand> updateMusicBand(@Valid @RequestBody MusicBandRequest musicBandRequest, @PathVariable @Min(1) Integer id) {
-        MusicBand updatedMusicBand = musicBandService.updateMusicBand(id, musicBandRequest);
-        return ResponseEntity.ok(updatedMusicBand);
+    public ResponseEntity<MusicBand> updateMusicBand(@Valid @RequestBody MusicBandRequest musicBandRequest, @PathVariable @Min(1) Integer id,
+                                                     @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        MediaType mediaType = BandMediaTypes.negotiate(accept);
+        MusicBand updatedMusicBand = musicBandService.updateMusicBand(id, musicBandRequest, revisionsOf(ifMatch));
+        return ResponseEntity.ok().contentType(mediaType).eTag(eTagOf(updatedMusicBand, mediaType))
+                .varyBy(HttpHeaders.ACCEPT).body(updatedMusicBand);
     }
 
     @GetMapping("/singles/equally/{singlesCount}")
     public ResponseEntity<CountResponse> getCountMusicBandsBySinglesCountEqually(@PathVariable Long singlesCount) {
         Long musicBandsCount = musicBandService.getMusicBandsCountBySinglesCount(singlesCount);
         CountResponse countResponse = new CountResponse(musicBandsCount);
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_XML).body(countResponse);
+        return ResponseEntity.ok(countResponse);
     }
 
     @GetMapping("/singles/greater/{singlesCount}")
     public ResponseEntity<CountResponse> getCountMusicBandsSinglesCountGreaterThan(@PathVariable Long singlesCount) {
         Long musicBandsCount = musicBandService.getMusicBandsCountBySinglesCountGreaterThan(singlesCount);
         CountResponse countResponse = new CountResponse(musicBandsCount);
-        return ResponseEntity.ok().contentType(MediaType.APPLICATION_XML).body(countResponse);
+        return ResponseEntity.ok(countResponse);
     }
 
-    @PostMapping(value = "/search-by-name", consumes = MediaType.APPLICATION_XML_VALUE, produces = MediaType.APPLICATION_XML_VALUE)
+    @PostMapping(value = "/search-by-name", consumes = MediaType.APPLICATION_XML_VALUE)
     public ResponseEntity<BandSearchResponse> getMusicBandsByNameSubstring(
                             @RequestParam(defaultValue = "1") @Min(1) int page,
                             @RequestParam(defaultValue = "10") @Min(1) int size,
+                            @RequestParam(required = false) String count,
+                            @RequestParam(required = false) String fields,
+                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
                             @Valid @RequestBody SubstringRequest substring) {
         PageRequest pageable = PageRequest.of(page - 1, size);
         String nameSubstring = substring.getValue();
-        Page<MusicBand> bandPage = musicBandService.findByNameContaining(nameSubstring, pageable);
-
-        BandSearchResponse response = new BandSearchResponse();
-        response.setPage(page);
-        response.setTotalPages(bandPage.getTotalPages());
-        response.setSize(size);
-        response.setTotalCount(bandPage.getTotalElements());
-        response.setBands(bandPage.getContent());
+        CountMode countMode = CountMode.parse(count);
+        BandProjection projection = BandProjection.parse(fields);
+        String signature = SearchSignature.ofNameSubstring(nameSubstring).canonical(page, size, countMode,
+                canonicalFields(projection));
 
-        return ResponseEntity.ok(response);
+        return searchResponse(ifNoneMatch, accept, signature, () -> toSearchResponse(
+                musicBandService.findByNameContaining(nameSubstring, pageable, countMode, projection), page, size, projection));
     }
 }
@@ -0,0 +1,16 @@
+package com.evelina.labs.dto;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+@XmlRootElement(name = "band")
+public class BandBatchItem extends MusicBandRequest {
+    @XmlElement(required = false)
+    private Integer id; //только для PUT /bands/batch
+}
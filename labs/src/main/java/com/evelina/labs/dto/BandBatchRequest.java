@@ -0,0 +1,26 @@
+package com.evelina.labs.dto;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlElementWrapper;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@XmlRootElement(name = "bandBatch")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BandBatchRequest {
+    @NotEmpty(message = "Список групп не может быть пустым")
+    @XmlElementWrapper(name = "bands")
+    @XmlElement(name = "band")
+    @JacksonXmlElementWrapper(localName = "bands")
+    @JacksonXmlProperty(localName = "band")
+    private List<BandBatchItem> bands;
+}
@@ -0,0 +1,30 @@
+package com.evelina.labs.dto;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlElementWrapper;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@XmlRootElement(name = "batchResult")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BandBatchResponse {
+    @XmlElement
+    private Integer succeeded;
+
+    @XmlElement
+    private Integer failed;
+
+    @XmlElementWrapper(name = "results")
+    @XmlElement(name = "result")
+    @JacksonXmlElementWrapper(localName = "results")
+    @JacksonXmlProperty(localName = "result")
+    private List<BatchItemResult> results;
+}
@@ -0,0 +1,24 @@
+package com.evelina.labs.dto;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@XmlRootElement(name = "bandIds")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BandIdsRequest {
+    @NotEmpty(message = "Список ID не может быть пустым")
+    @XmlElement(name = "id")
+    @JacksonXmlElementWrapper(useWrapping = false)
+    @JacksonXmlProperty(localName = "id")
+    private List<Integer> ids;
+}
@@ -0,0 +1,30 @@
+package com.evelina.labs.dto;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlElementWrapper;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@XmlRootElement(name = "importResult")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BandImportResponse {
+    @XmlElement
+    private Long imported;
+
+    @XmlElement
+    private Long rejected;
+
+    @XmlElementWrapper(name = "errors")
+    @XmlElement(name = "error")
+    @JacksonXmlElementWrapper(localName = "errors")
+    @JacksonXmlProperty(localName = "error")
+    private List<BatchItemResult> errors; //не больше bands.transfer.max-reported-errors
+}
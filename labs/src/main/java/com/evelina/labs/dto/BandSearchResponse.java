@@ -1,6 +1,5 @@
 package com.evelina.labs.dto;
 
-import com.evelina.labs.models.MusicBand;
 import jakarta.xml.bind.annotation.XmlElement;
 import jakarta.xml.bind.annotation.XmlElementWrapper;
 import jakarta.xml.bind.annotation.XmlRootElement;
@@ -17,5 +16,5 @@ import java.util.List;
 public class BandSearchResponse extends PaginationBase {
     @XmlElementWrapper(name = "bands")
     @XmlElement(name = "band")
-    private List<MusicBand> bands;
+    private List<?> bands; // MusicBand или MusicBandView при заданном fields
 }
\ No newline at end of file
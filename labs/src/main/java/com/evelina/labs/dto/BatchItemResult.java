@@ -0,0 +1,23 @@
+package com.evelina.labs.dto;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResult {
+    @XmlElement
+    private Integer index;
+
+    @XmlElement
+    private Integer id;
+
+    @XmlElement
+    private Integer status;
+
+    @XmlElement
+    private String message;
+}
@@ -0,0 +1,20 @@
+package com.evelina.labs.dto;
+
+import com.evelina.labs.exception.InvalidParameterException;
+
+public enum CountMode {
+    EXACT,
+    NONE,
+    ESTIMATED;
+
+    public static CountMode parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return EXACT;
+        }
+        try {
+            return CountMode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidParameterException("Некорректное значение параметра count: " + value);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.evelina.labs.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.xml.bind.annotation.XmlElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GrammyBandOperation {
+    @NotNull(message = "ID группы не может быть пустым")
+    @XmlElement
+    private Integer bandId;
+
+    @Min(value = 0, message = "Количество синглов не может быть отрицательным")
+    @XmlElement
+    private long singlesToAdd;
+
+    @Min(value = 0, message = "Количество участников не может быть отрицательным")
+    @XmlElement
+    private int participantsToRemove;
+}
@@ -0,0 +1,26 @@
+package com.evelina.labs.dto;
+
+import jakarta.xml.bind.annotation.XmlElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GrammyBandResult {
+    @XmlElement
+    private Integer bandId;
+
+    @XmlElement
+    private Integer status;
+
+    @XmlElement
+    private Long singlesAdded;
+
+    @XmlElement
+    private Integer participantsRemoved; //может быть меньше запрошенного, если в группе остался один участник
+
+    @XmlElement
+    private String message;
+}
@@ -0,0 +1,31 @@
+package com.evelina.labs.dto;
+
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlElementWrapper;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@XmlRootElement(name = "grammyBatch")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GrammyBatchRequest {
+    public static final int MAX_OPERATIONS = 1000;
+
+    @NotEmpty(message = "Список операций не может быть пустым")
+    @Size(max = MAX_OPERATIONS, message = "Пакет не может содержать больше " + MAX_OPERATIONS + " операций")
+    @XmlElementWrapper(name = "operations")
+    @XmlElement(name = "operation")
+    @JacksonXmlElementWrapper(localName = "operations")
+    @JacksonXmlProperty(localName = "operation")
+    private List<@Valid GrammyBandOperation> operations;
+}
@@ -0,0 +1,44 @@
+package com.evelina.labs.dto;
+
+import com.evelina.labs.models.Coordinates;
+import com.evelina.labs.models.Label;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.models.MusicGenre;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Группа в ответе поиска с параметром fields: в XML попадают только запрошенные поля.
+ */
+@Data
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MusicBandView {
+    private Integer id;
+    private String name;
+    private Coordinates coordinates;
+    private LocalDateTime creationDate;
+    private Long numberOfParticipants;
+    private Long singlesCount;
+    private Integer albumsCount;
+    private MusicGenre genre;
+    private Label label;
+
+    public static MusicBandView of(MusicBand band, Set<String> fields) {
+        MusicBandView view = new MusicBandView();
+        view.setId(band.getId());
+        if (fields.contains("name")) view.setName(band.getName());
+        if (fields.contains("coordinates")) view.setCoordinates(band.getCoordinates());
+        if (fields.contains("creationDate")) view.setCreationDate(band.getCreationDate());
+        if (fields.contains("numberOfParticipants")) view.setNumberOfParticipants(band.getNumberOfParticipants());
+        if (fields.contains("singlesCount")) view.setSinglesCount(band.getSinglesCount());
+        if (fields.contains("albumsCount")) view.setAlbumsCount(band.getAlbumsCount());
+        if (fields.contains("genre")) view.setGenre(band.getGenre());
+        if (fields.contains("label")) view.setLabel(band.getLabel());
+        return view;
+    }
+}
@@ -22,4 +22,10 @@ public class Pagination {
 
     @XmlElement
     private Integer size;
+
+    @XmlElement
+    private Boolean hasNext;
+
+    @XmlElement
+    private String nextCursor;
 }
\ No newline at end of file
@@ -30,4 +30,14 @@ public class PaginationBase {
         if (this.pagination == null) this.pagination = new Pagination();
         this.pagination.setSize(size);
     }
+
+    public void setHasNext(Boolean hasNext) {
+        if (this.pagination == null) this.pagination = new Pagination();
+        this.pagination.setHasNext(hasNext);
+    }
+
+    public void setNextCursor(String nextCursor) {
+        if (this.pagination == null) this.pagination = new Pagination();
+        this.pagination.setNextCursor(nextCursor);
+    }
 }
\ No newline at end of file
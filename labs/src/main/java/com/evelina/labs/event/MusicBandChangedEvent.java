@@ -0,0 +1,39 @@
+package com.evelina.labs.event;
+
+import com.evelina.labs.models.MusicBand;
+import lombok.Value;
+
+@Value
+public class MusicBandChangedEvent {
+
+    public enum Type {
+        SAVED,
+        DELETED,
+        SINGLES_ADDED,
+        PARTICIPANT_REMOVED
+    }
+
+    Type type;
+    Integer bandId;
+    MusicBand band; //только для SAVED
+    long delta; //для SINGLES_ADDED - добавлено синглов, для PARTICIPANT_REMOVED - удалено участников
+    Long singlesCount; //только для SINGLES_ADDED: значение после изменения
+    long version; //версия строки после изменения; по ней подписчики отбрасывают устаревшие и повторные события
+
+    public static MusicBandChangedEvent saved(MusicBand band) {
+        return new MusicBandChangedEvent(Type.SAVED, band.getId(), band, 0, band.getSinglesCount(),
+                band.getVersion() == null ? 0 : band.getVersion());
+    }
+
+    public static MusicBandChangedEvent deleted(Integer bandId) {
+        return new MusicBandChangedEvent(Type.DELETED, bandId, null, 0, null, Long.MAX_VALUE);
+    }
+
+    public static MusicBandChangedEvent singlesAdded(Integer bandId, long delta, long singlesCount, long version) {
+        return new MusicBandChangedEvent(Type.SINGLES_ADDED, bandId, null, delta, singlesCount, version);
+    }
+
+    public static MusicBandChangedEvent participantRemoved(Integer bandId, long removed) {
+        return new MusicBandChangedEvent(Type.PARTICIPANT_REMOVED, bandId, null, removed, null, 0);
+    }
+}
@@ -0,0 +1,85 @@
+package com.evelina.labs.repository;
+
+import com.evelina.labs.exception.InvalidParameterException;
+import com.evelina.labs.models.MusicBand;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Позиция keyset-пагинации: поле сортировки, направление и ключ (значение поля + id)
+ * последней отданной группы. Клиенту передается как непрозрачная строка.
+ */
+@Getter
+@AllArgsConstructor
+public class BandCursor {
+
+    public static final List<String> SORTABLE_FIELDS =
+            List.of("id", "name", "creationDate", "numberOfParticipants", "singlesCount", "albumsCount");
+
+    private static final String SEPARATOR = ":";
+    private static final String VALUE_PREFIX = "=";
+
+    private final String field;
+    private final Sort.Direction direction;
+    private final Integer lastId;
+    private final Comparable<?> lastValue;
+
+    public static BandCursor after(Sort.Order order, MusicBand band) {
+        return new BandCursor(order.getProperty(), order.getDirection(), band.getId(), valueOf(order.getProperty(), band));
+    }
+
+    public boolean matches(Sort.Order order) {
+        return field.equals(order.getProperty()) && direction == order.getDirection();
+    }
+
+    public String encode() {
+        String raw = field + SEPARATOR + direction.name() + SEPARATOR + lastId + SEPARATOR
+                + (lastValue == null ? "" : VALUE_PREFIX + lastValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BandCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            String field = parts[0];
+            if (!SORTABLE_FIELDS.contains(field)) {
+                throw new IllegalStateException(field);
+            }
+            Sort.Direction direction = Sort.Direction.valueOf(parts[1]);
+            Integer lastId = Integer.valueOf(parts[2]);
+            Comparable<?> lastValue = parts[3].isEmpty() ? null : parseValue(field, parts[3].substring(VALUE_PREFIX.length()));
+            return new BandCursor(field, direction, lastId, lastValue);
+        } catch (RuntimeException e) {
+            throw new InvalidParameterException("Некорректное значение параметра cursor: " + token);
+        }
+    }
+
+    private static Comparable<?> valueOf(String field, MusicBand band) {
+        return switch (field) {
+            case "id" -> band.getId();
+            case "name" -> band.getName();
+            case "creationDate" -> band.getCreationDate();
+            case "numberOfParticipants" -> band.getNumberOfParticipants();
+            case "singlesCount" -> band.getSinglesCount();
+            case "albumsCount" -> band.getAlbumsCount();
+            default -> throw new InvalidParameterException("Поле для сортировки '" + field + "' недопустимо.");
+        };
+    }
+
+    private static Comparable<?> parseValue(String field, String value) {
+        return switch (field) {
+            case "id", "albumsCount" -> Integer.valueOf(value);
+            case "name" -> value;
+            case "creationDate" -> LocalDateTime.parse(value);
+            case "numberOfParticipants", "singlesCount" -> Long.valueOf(value);
+            default -> throw new IllegalStateException(field);
+        };
+    }
+}
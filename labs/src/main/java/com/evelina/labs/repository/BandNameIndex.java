@@ -0,0 +1,12 @@
+package com.evelina.labs.repository;
+
+import com.evelina.labs.models.MusicBand;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Поиск групп по подстроке в названии.
+ */
+public interface BandNameIndex {
+
+    Specification<MusicBand> containing(String nameSubstring, boolean ignoreCase);
+}
@@ -0,0 +1,95 @@
+package com.evelina.labs.repository;
+
+import com.evelina.labs.exception.InvalidParameterException;
+import com.evelina.labs.models.Coordinates;
+import com.evelina.labs.models.Label;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.models.MusicGenre;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Набор полей группы из параметра fields. Поиск с проекцией выбирает из БД только эти столбцы
+ * (tuple-запрос без загрузки сущностей в persistence context), id выбирается всегда.
+ */
+@Getter
+@EqualsAndHashCode
+public class BandProjection {
+
+    public static final List<String> SELECTABLE_FIELDS = List.of("id", "name", "coordinates", "creationDate",
+            "numberOfParticipants", "singlesCount", "albumsCount", "genre", "label");
+
+    private final Set<String> fields;
+
+    private BandProjection(Set<String> fields) {
+        this.fields = Collections.unmodifiableSet(fields);
+    }
+
+    /**
+     * @return null, если fields не задан - тогда группы возвращаются целиком
+     */
+    public static BandProjection parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<String> selected = new LinkedHashSet<>();
+        selected.add("id");
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (!SELECTABLE_FIELDS.contains(name)) {
+                throw new InvalidParameterException("Поле '" + name + "' недопустимо в параметре fields. Допустимые поля: "
+                        + String.join(", ", SELECTABLE_FIELDS));
+            }
+            selected.add(name);
+        }
+        return new BandProjection(selected);
+    }
+
+    public BandProjection with(String field) {
+        if (fields.contains(field)) {
+            return this;
+        }
+        Set<String> selected = new LinkedHashSet<>(fields);
+        selected.add(field);
+        return new BandProjection(selected);
+    }
+
+    public List<Selection<?>> selections(Root<MusicBand> root) {
+        return fields.stream()
+                .<Selection<?>>map(field -> root.get(field).alias(field))
+                .toList();
+    }
+
+    public MusicBand toBand(Tuple tuple) {
+        MusicBand.MusicBandBuilder band = MusicBand.builder();
+        for (String field : fields) {
+            switch (field) {
+                case "id" -> band.id(tuple.get(field, Integer.class));
+                case "name" -> band.name(tuple.get(field, String.class));
+                case "coordinates" -> band.coordinates(tuple.get(field, Coordinates.class));
+                case "creationDate" -> band.creationDate(tuple.get(field, LocalDateTime.class));
+                case "numberOfParticipants" -> band.numberOfParticipants(tuple.get(field, Long.class));
+                case "singlesCount" -> band.singlesCount(tuple.get(field, Long.class));
+                case "albumsCount" -> band.albumsCount(tuple.get(field, Integer.class));
+                case "genre" -> band.genre(tuple.get(field, MusicGenre.class));
+                case "label" -> band.label(tuple.get(field, Label.class));
+                default -> throw new IllegalStateException(field);
+            }
+        }
+        return band.build();
+    }
+
+    @Override
+    public String toString() {
+        return String.join(",", fields);
+    }
+}
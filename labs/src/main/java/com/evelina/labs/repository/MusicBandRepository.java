@@ -1,19 +1,57 @@
 package com.evelina.labs.repository;
 
 import com.evelina.labs.models.MusicBand;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
-public interface MusicBandRepository extends JpaRepository<MusicBand, Integer>, JpaSpecificationExecutor<MusicBand>     {
+public interface MusicBandRepository extends JpaRepository<MusicBand, Integer>, JpaSpecificationExecutor<MusicBand>, MusicBandRepositoryCustom {
 
     MusicBand getMusicBandById(Integer id);
     Long countBySinglesCount(Long singlesCount);
     Long countBySinglesCountGreaterThan(Long singlesCount);
-    Page<MusicBand> findByNameContaining(String nameSubstring, Pageable pageable);
+
+    @Query("select b.id, b.name from MusicBand b")
+    List<Object[]> findAllIdsAndNames();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.id, b.singlesCount, b.version from MusicBand b")
+    Stream<Object[]> streamSinglesCounts();
+
+    @Query("select b.singlesCount, b.version from MusicBand b where b.id = :id")
+    List<Object[]> findSinglesCountAndVersion(@Param("id") Integer id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from MusicBand b where b.id in :ids order by b.id")
+    List<MusicBand> findAllByIdForUpdate(@Param("ids") Collection<Integer> ids);
+
+    @Query("select b.id from MusicBand b where b.id in :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    @Transactional
+    @Modifying
+    @Query("update MusicBand b set b.singlesCount = coalesce(b.singlesCount, 0) + :delta, b.version = b.version + 1 where b.id = :id")
+    int addSingles(@Param("id") Integer id, @Param("delta") long delta);
+
+    @Transactional
+    @Modifying
+    @Query("update MusicBand b set b.numberOfParticipants = b.numberOfParticipants - 1, b.version = b.version + 1 "
+            + "where b.id = :id and b.numberOfParticipants > 1")
+    int removeParticipant(@Param("id") Integer id);
 }
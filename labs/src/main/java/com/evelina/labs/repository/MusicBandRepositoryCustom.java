@@ -0,0 +1,20 @@
+package com.evelina.labs.repository;
+
+import com.evelina.labs.models.MusicBand;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface MusicBandRepositoryCustom {
+
+    Slice<MusicBand> findSlice(Specification<MusicBand> spec, Pageable pageable);
+
+    List<MusicBand> findAllSeek(Specification<MusicBand> spec, Sort.Order order, int limit);
+
+    Slice<MusicBand> findSlice(Specification<MusicBand> spec, Pageable pageable, BandProjection projection);
+
+    List<MusicBand> findAllSeek(Specification<MusicBand> spec, Sort.Order order, int limit, BandProjection projection);
+}
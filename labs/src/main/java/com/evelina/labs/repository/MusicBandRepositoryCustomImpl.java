@@ -0,0 +1,115 @@
+package com.evelina.labs.repository;
+
+import com.evelina.labs.models.MusicBand;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.Session;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class MusicBandRepositoryCustomImpl implements MusicBandRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Slice<MusicBand> findSlice(Specification<MusicBand> spec, Pageable pageable) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MusicBand> query = criteriaBuilder.createQuery(MusicBand.class);
+        Root<MusicBand> root = query.from(MusicBand.class);
+
+        query.select(root).where(spec.toPredicate(root, query, criteriaBuilder));
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+        }
+
+        List<MusicBand> bands = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        return toSlice(bands, pageable);
+    }
+
+    @Override
+    public Slice<MusicBand> findSlice(Specification<MusicBand> spec, Pageable pageable, BandProjection projection) {
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<MusicBand> root = query.from(MusicBand.class);
+
+        query.multiselect(projection.selections(root)).where(spec.toPredicate(root, query, criteriaBuilder));
+        if (pageable.getSort().isSorted()) {
+            query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, criteriaBuilder));
+        }
+
+        List<MusicBand> bands = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultStream()
+                .map(projection::toBand)
+                .toList();
+        return toSlice(bands, pageable);
+    }
+
+    private static Slice<MusicBand> toSlice(List<MusicBand> bands, Pageable pageable) {
+        boolean hasNext = bands.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? bands.subList(0, pageable.getPageSize()) : bands, pageable, hasNext);
+    }
+
+    @Override
+    public List<MusicBand> findAllSeek(Specification<MusicBand> spec, Sort.Order order, int limit) {
+        HibernateCriteriaBuilder criteriaBuilder = entityManager.unwrap(Session.class).getCriteriaBuilder();
+        CriteriaQuery<MusicBand> query = criteriaBuilder.createQuery(MusicBand.class);
+        Root<MusicBand> root = query.from(MusicBand.class);
+
+        query.select(root).where(spec.toPredicate(root, query, criteriaBuilder));
+        query.orderBy(seekOrders(order, root, criteriaBuilder));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<MusicBand> findAllSeek(Specification<MusicBand> spec, Sort.Order order, int limit, BandProjection projection) {
+        HibernateCriteriaBuilder criteriaBuilder = entityManager.unwrap(Session.class).getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = criteriaBuilder.createTupleQuery();
+        Root<MusicBand> root = query.from(MusicBand.class);
+
+        // поле сортировки нужно для следующего cursor, даже если клиент его не запросил
+        BandProjection selected = projection.with(order.getProperty());
+        query.multiselect(selected.selections(root)).where(spec.toPredicate(root, query, criteriaBuilder));
+        query.orderBy(seekOrders(order, root, criteriaBuilder));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultStream()
+                .map(selected::toBand)
+                .toList();
+    }
+
+    private List<Order> seekOrders(Sort.Order order, Root<MusicBand> root, HibernateCriteriaBuilder criteriaBuilder) {
+        List<Order> orders = new ArrayList<>();
+        boolean ascending = order.isAscending();
+        if (!"id".equals(order.getProperty())) {
+            Path<?> field = root.get(order.getProperty());
+            orders.add(ascending ? criteriaBuilder.asc(field, false) : criteriaBuilder.desc(field, false));
+        }
+        Path<?> id = root.get("id");
+        orders.add(ascending ? criteriaBuilder.asc(id) : criteriaBuilder.desc(id));
+        return orders;
+    }
+}
@@ -2,23 +2,26 @@ package com.evelina.labs.repository;
 
 import com.evelina.labs.dto.BandSearchRequest;
 import com.evelina.labs.models.MusicBand;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 
 public class MusicBandSpecification {
 
-    public static Specification<MusicBand> searchByCriteria(BandSearchRequest request) {
+    private static final char ESCAPE = '\\';
+
+    public static Specification<MusicBand> searchByCriteria(BandSearchRequest request, BandNameIndex nameIndex) {
         return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             if (StringUtils.hasText(request.getName())) {
-                predicates.add(criteriaBuilder.like(
-                        criteriaBuilder.lower(root.get("name")),
-                        "%" + request.getName().toLowerCase() + "%"
-                ));
+                predicates.add(nameIndex.containing(request.getName(), true)
+                        .toPredicate(root, query, criteriaBuilder));
             }
 
             if (request.getGenre() != null) {
@@ -51,4 +54,54 @@ public class MusicBandSpecification {
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
     }
+
+    public static Specification<MusicBand> nameContains(String nameSubstring, boolean ignoreCase) {
+        return (root, query, criteriaBuilder) -> ignoreCase
+                ? criteriaBuilder.like(
+                        criteriaBuilder.lower(root.get("name")),
+                        "%" + escapeLike(nameSubstring.toLowerCase(Locale.ROOT)) + "%",
+                        ESCAPE)
+                : criteriaBuilder.like(
+                        root.get("name"),
+                        "%" + escapeLike(nameSubstring) + "%",
+                        ESCAPE);
+    }
+
+    public static Specification<MusicBand> idIn(Collection<Integer> ids) {
+        return (root, query, criteriaBuilder) -> root.get("id").in(ids);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<MusicBand> after(BandCursor cursor) {
+        return (root, query, criteriaBuilder) -> {
+            boolean ascending = cursor.getDirection().isAscending();
+            Path<Integer> id = root.get("id");
+            Predicate idAfter = ascending
+                    ? criteriaBuilder.greaterThan(id, cursor.getLastId())
+                    : criteriaBuilder.lessThan(id, cursor.getLastId());
+
+            if ("id".equals(cursor.getField())) {
+                return idAfter;
+            }
+
+            Path<Comparable> field = root.get(cursor.getField());
+            if (cursor.getLastValue() == null) {
+                return criteriaBuilder.and(criteriaBuilder.isNull(field), idAfter);
+            }
+
+            Comparable value = cursor.getLastValue();
+            Predicate valueAfter = ascending
+                    ? criteriaBuilder.greaterThan(field, value)
+                    : criteriaBuilder.lessThan(field, value);
+            return criteriaBuilder.or(
+                    valueAfter,
+                    criteriaBuilder.and(criteriaBuilder.equal(field, value), idAfter),
+                    criteriaBuilder.isNull(field)
+            );
+        };
+    }
 }
@@ -0,0 +1,154 @@
+package com.evelina.labs.repository;
+
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.models.MusicBand;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Триграммный индекс названий в памяти процесса для БД без pg_trgm (H2 и т.п.).
+ * Индекс сужает выборку до id-кандидатов, LIKE по name отсекает ложные совпадения.
+ */
+public class NgramBandNameIndex implements BandNameIndex {
+
+    private static final int GRAM = 3;
+    private static final int MAX_CANDIDATES = 10_000;
+
+    private final MusicBandRepository musicBandRepository;
+    private final Map<String, Set<Integer>> postings = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private volatile boolean ready;
+    private List<MusicBandChangedEvent> pendingDuringBuild;
+
+    public NgramBandNameIndex(MusicBandRepository musicBandRepository) {
+        this.musicBandRepository = musicBandRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        synchronized (lock) {
+            pendingDuringBuild = new ArrayList<>();
+        }
+        try {
+            for (Object[] row : musicBandRepository.findAllIdsAndNames()) {
+                synchronized (lock) {
+                    index((Integer) row[0], (String) row[1]);
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                // строки снимка могли быть прочитаны до изменений, пришедших во время построения
+                pendingDuringBuild.forEach(this::apply);
+                pendingDuringBuild = null;
+            }
+        }
+        ready = true;
+    }
+
+    @EventListener
+    public void onBandChanged(MusicBandChangedEvent event) {
+        synchronized (lock) {
+            if (pendingDuringBuild != null) {
+                pendingDuringBuild.add(event);
+            }
+            apply(event);
+        }
+    }
+
+    private void apply(MusicBandChangedEvent event) {
+        switch (event.getType()) {
+            case SAVED -> index(event.getBandId(), event.getBand().getName());
+            case DELETED -> remove(event.getBandId());
+            default -> {
+            }
+        }
+    }
+
+    @Override
+    public Specification<MusicBand> containing(String nameSubstring, boolean ignoreCase) {
+        Specification<MusicBand> spec = MusicBandSpecification.nameContains(nameSubstring, ignoreCase);
+        Set<Integer> candidates = candidates(nameSubstring.toLowerCase(Locale.ROOT));
+        if (candidates == null) {
+            return spec;
+        }
+        if (candidates.isEmpty()) {
+            return (root, query, criteriaBuilder) -> criteriaBuilder.disjunction();
+        }
+        return MusicBandSpecification.idIn(candidates).and(spec);
+    }
+
+    /**
+     * @return id групп, в названии которых есть все триграммы подстроки; null - индекс не сужает выборку
+     * (он еще строится, подстрока короче триграммы или кандидатов слишком много)
+     */
+    Set<Integer> candidates(String substring) {
+        if (!ready || substring.length() < GRAM) {
+            return null;
+        }
+        List<Set<Integer>> lists = new ArrayList<>();
+        for (String gram : grams(substring)) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids == null) {
+                return Set.of();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        if (lists.get(0).size() > MAX_CANDIDATES) {
+            return null;
+        }
+        Set<Integer> result = new HashSet<>(lists.get(0));
+        for (int i = 1; i < lists.size() && !result.isEmpty(); i++) {
+            result.retainAll(lists.get(i));
+        }
+        return result;
+    }
+
+    private void index(Integer id, String name) {
+        String previous = names.put(id, name);
+        if (previous != null) {
+            if (previous.equals(name)) {
+                return;
+            }
+            unlink(id, previous);
+        }
+        for (String gram : grams(name.toLowerCase(Locale.ROOT))) {
+            postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    private void remove(Integer id) {
+        String previous = names.remove(id);
+        if (previous != null) {
+            unlink(id, previous);
+        }
+    }
+
+    private void unlink(Integer id, String name) {
+        for (String gram : grams(name.toLowerCase(Locale.ROOT))) {
+            postings.computeIfPresent(gram, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,17 @@
+package com.evelina.labs.repository;
+
+import com.evelina.labs.models.MusicBand;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * PostgreSQL: LIKE '%x%' по lower(name) обслуживается GIN-индексом pg_trgm (миграция V4__music_band_name_trgm).
+ * Регистрозависимый поиск дополнительно перепроверяет name LIKE по строкам, найденным через индекс.
+ */
+public class TrigramBandNameIndex implements BandNameIndex {
+
+    @Override
+    public Specification<MusicBand> containing(String nameSubstring, boolean ignoreCase) {
+        Specification<MusicBand> spec = MusicBandSpecification.nameContains(nameSubstring, true);
+        return ignoreCase ? spec : spec.and(MusicBandSpecification.nameContains(nameSubstring, false));
+    }
+}
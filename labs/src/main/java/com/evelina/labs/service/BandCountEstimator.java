@@ -0,0 +1,72 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.repository.MusicBandRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Приблизительное число групп для count=estimated: для запроса без фильтров берется статистика
+ * планировщика PostgreSQL (pg_class.reltuples), для остальных - точный count, закешированный по сигнатуре фильтра.
+ */
+@Component
+public class BandCountEstimator {
+
+    private static final String RELTUPLES_SQL = "SELECT reltuples::bigint FROM pg_class WHERE oid = 'music_band'::regclass";
+
+    private final MusicBandRepository musicBandRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean postgres;
+    private final long ttlMillis;
+    private final Map<SearchSignature, CachedCount> cache;
+
+    public BandCountEstimator(MusicBandRepository musicBandRepository,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${spring.datasource.url}") String datasourceUrl,
+                              @Value("${bands.count.estimate-ttl:30s}") Duration ttl,
+                              @Value("${bands.count.estimate-cache-size:1000}") int cacheSize) {
+        this.musicBandRepository = musicBandRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.postgres = DatabaseDriver.fromJdbcUrl(datasourceUrl) == DatabaseDriver.POSTGRESQL;
+        this.ttlMillis = ttl.toMillis();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SearchSignature, CachedCount> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public long estimate(SearchSignature signature, Specification<MusicBand> spec) {
+        if (postgres && signature.isUnfiltered()) {
+            Long reltuples = jdbcTemplate.queryForObject(RELTUPLES_SQL, Long.class);
+            if (reltuples != null && reltuples >= 0) {
+                return reltuples;
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            CachedCount cached = cache.get(signature);
+            if (cached != null && now - cached.computedAt < ttlMillis) {
+                return cached.count;
+            }
+        }
+
+        long count = musicBandRepository.count(spec);
+        synchronized (cache) {
+            cache.put(signature, new CachedCount(count, now));
+        }
+        return count;
+    }
+
+    private record CachedCount(long count, long computedAt) {
+    }
+}
@@ -0,0 +1,46 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.event.MusicBandChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Поколение записи таблицы music_band: увеличивается при каждом изменении групп.
+ * Вместе с моментом запуска приложения однозначно задает состояние таблицы для кешей и ETag поиска.
+ * <p>
+ * Счетчик живет в памяти узла и видит только изменения, сделанные этим узлом через MusicBandChangedEvent.
+ * Изменения с других узлов или напрямую в БД его не увеличивают, поэтому он рассчитан на одного писателя.
+ * Чтобы при нескольких узлах устаревшие данные не отдавались бесконечно, ETag поиска меняется не реже
+ * раза в bands.search-etag.ttl, а страницы в MusicBandSearchCache живут не дольше bands.search-cache.ttl.
+ */
+@Component
+public class BandWriteGeneration {
+
+    private final long epoch = System.currentTimeMillis();
+    private final long ttlMillis;
+    private final AtomicLong generation = new AtomicLong();
+
+    public BandWriteGeneration(@Value("${bands.search-etag.ttl:1m}") Duration ttl) {
+        this.ttlMillis = Math.max(1, ttl.toMillis());
+    }
+
+    public long current() {
+        return generation.get();
+    }
+
+    /**
+     * Поколение для ETag поиска: кроме счетчика включает номер текущего интервала bands.search-etag.ttl.
+     */
+    public String tag() {
+        return Long.toString(epoch, 36) + "." + generation.get() + "." + Long.toString(System.currentTimeMillis() / ttlMillis, 36);
+    }
+
+    @EventListener
+    public void onBandChanged(MusicBandChangedEvent event) {
+        generation.incrementAndGet();
+    }
+}
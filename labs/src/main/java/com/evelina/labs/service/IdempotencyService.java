@@ -0,0 +1,191 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.exception.InvalidParameterException;
+import com.evelina.labs.exception.RequestInProgressException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Однократное выполнение неидемпотентных операций по заголовку Idempotency-Key. Выполненные ключи хранятся
+ * bands.idempotency.ttl в ограниченном кеше (и, при bands.idempotency.persistent=true, в таблице idempotency_key
+ * в одной транзакции с самой операцией), повтор с тем же ключом не выполняет операцию заново.
+ * Неуспешные операции не запоминаются: они ничего не изменили, и повтор выполняется как новый запрос.
+ * Хранение ключей в таблице несовместимо с отложенной записью синглов: ключ коммитился бы раньше,
+ * чем приращение попадет в БД, поэтому такая конфигурация не запускается.
+ */
+@Slf4j
+@Component
+public class IdempotencyService {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final String SELECT_SQL = "SELECT fingerprint FROM idempotency_key WHERE idempotency_key = ? AND created_at > ?";
+    private static final String INSERT_SQL = "INSERT INTO idempotency_key (idempotency_key, fingerprint, created_at) VALUES (?, ?, ?)";
+    private static final String DELETE_SQL = "DELETE FROM idempotency_key WHERE idempotency_key = ?";
+    private static final String DELETE_EXPIRED_SQL = "DELETE FROM idempotency_key WHERE created_at <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration waitTimeout;
+    private final boolean persistent;
+    private final Map<String, Entry> cache;
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${bands.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${bands.idempotency.max-entries:100000}") int maxEntries,
+                              @Value("${bands.idempotency.wait-timeout:10s}") Duration waitTimeout,
+                              @Value("${bands.idempotency.persistent:false}") boolean persistent,
+                              SinglesWriteBehindBuffer singlesWriteBehindBuffer) {
+        if (persistent && singlesWriteBehindBuffer.isEnabled()) {
+            throw new IllegalStateException("bands.idempotency.persistent=true нельзя использовать вместе с "
+                    + "bands.singles-write-behind.enabled=true");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = ttl;
+        this.waitTimeout = waitTimeout;
+        this.persistent = persistent;
+        this.cache = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries && eldest.getValue().result.isDone();
+            }
+        };
+    }
+
+    /**
+     * @return true, если операция выполнена сейчас, false - если это повтор уже выполненной
+     */
+    public boolean execute(String key, String fingerprint, Runnable action) {
+        if (key == null) {
+            action.run();
+            return true;
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidParameterException("Некорректное значение заголовка " + IDEMPOTENCY_KEY_HEADER + ": " + key);
+        }
+
+        long now = System.currentTimeMillis();
+        Entry existing;
+        Entry entry = null;
+        synchronized (cache) {
+            existing = cache.get(key);
+            if (existing == null || existing.isExpired(now, ttl)) {
+                existing = null;
+                entry = new Entry(fingerprint, now);
+                cache.put(key, entry);
+            }
+        }
+        if (existing != null) {
+            return replay(existing, fingerprint);
+        }
+
+        try {
+            boolean executed = persistent ? executePersistent(key, fingerprint, action) : run(action);
+            entry.result.complete(null);
+            return executed;
+        } catch (RuntimeException e) {
+            synchronized (cache) {
+                cache.remove(key, entry);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bands.idempotency.cleanup-interval:10m}")
+    public void removeExpired() {
+        if (persistent) {
+            int removed = jdbcTemplate.update(DELETE_EXPIRED_SQL, Timestamp.valueOf(LocalDateTime.now().minus(ttl)));
+            log.debug("Удалено {} устаревших ключей идемпотентности", removed);
+        }
+    }
+
+    private boolean replay(Entry entry, String fingerprint) {
+        if (!entry.fingerprint.equals(fingerprint)) {
+            throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " уже использован для другого запроса");
+        }
+        // если первый запрос еще выполняется, повтор ждет его результата
+        try {
+            entry.result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return false;
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RequestInProgressException("Запрос с таким " + IDEMPOTENCY_KEY_HEADER + " еще выполняется");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean executePersistent(String key, String fingerprint, Runnable action) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                List<String> stored = jdbcTemplate.queryForList(SELECT_SQL, String.class, key,
+                        Timestamp.valueOf(LocalDateTime.now().minus(ttl)));
+                if (!stored.isEmpty()) {
+                    if (!stored.get(0).equals(fingerprint)) {
+                        throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " уже использован для другого запроса");
+                    }
+                    return false;
+                }
+                jdbcTemplate.update(DELETE_SQL, key);
+                jdbcTemplate.update(INSERT_SQL, key, fingerprint, Timestamp.valueOf(LocalDateTime.now()));
+                action.run();
+                return true;
+            }));
+        } catch (DuplicateKeyException e) {
+            // тот же ключ одновременно выполнен другим узлом: это повтор, только если и запрос тот же
+            List<String> stored = jdbcTemplate.queryForList(SELECT_SQL, String.class, key,
+                    Timestamp.valueOf(LocalDateTime.now().minus(ttl)));
+            if (stored.isEmpty()) {
+                throw new RequestInProgressException("Запрос с таким " + IDEMPOTENCY_KEY_HEADER + " еще выполняется");
+            }
+            if (!stored.get(0).equals(fingerprint)) {
+                throw new IllegalArgumentException(IDEMPOTENCY_KEY_HEADER + " уже использован для другого запроса");
+            }
+            return false;
+        }
+    }
+
+    private static boolean run(Runnable action) {
+        action.run();
+        return true;
+    }
+
+    private static class Entry {
+        private final String fingerprint;
+        private final long createdAt;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private Entry(String fingerprint, long createdAt) {
+            this.fingerprint = fingerprint;
+            this.createdAt = createdAt;
+        }
+
+        private boolean isExpired(long now, Duration ttl) {
+            return result.isDone() && now - createdAt >= ttl.toMillis();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.dto.BandBatchItem;
+import com.evelina.labs.dto.BandBatchResponse;
+import com.evelina.labs.dto.BatchItemResult;
+import com.evelina.labs.dto.GrammyBandOperation;
+import com.evelina.labs.dto.GrammyBandResult;
+import com.evelina.labs.dto.GrammyBatchResponse;
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.repository.MusicBandRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Пакетные операции над группами. Элементы обрабатываются частями по bands.batch.chunk-size,
+ * каждая часть - отдельная транзакция с JDBC batching (hibernate.jdbc.batch_size), после которой
+ * persistence context очищается. Ошибка в одном элементе не отменяет остальные.
+ */
+@Slf4j
+@Service
+public class MusicBandBatchService {
+
+    private final MusicBandRepository musicBandRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final SinglesWriteBehindBuffer singlesWriteBehindBuffer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    public MusicBandBatchService(MusicBandRepository musicBandRepository,
+                                 EntityManager entityManager,
+                                 TransactionTemplate transactionTemplate,
+                                 Validator validator,
+                                 SinglesWriteBehindBuffer singlesWriteBehindBuffer,
+                                 ApplicationEventPublisher eventPublisher,
+                                 @Value("${bands.batch.chunk-size:1000}") int chunkSize) {
+        this.musicBandRepository = musicBandRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.singlesWriteBehindBuffer = singlesWriteBehindBuffer;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    public BandBatchResponse createMusicBands(List<BandBatchItem> items) {
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, items.size());
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                if (!rejectInvalid(i, items.get(i), results)) {
+                    indexes.add(i);
+                }
+            }
+            writeChunk(indexes, results, i -> null, part -> createChunk(items, part, results));
+        }
+        return toResponse(results);
+    }
+
+    private void createChunk(List<BandBatchItem> items, List<Integer> indexes, BatchItemResult[] results) {
+        List<MusicBand> bands = indexes.stream().map(i -> MusicBandService.toMusicBand(items.get(i))).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            musicBandRepository.saveAll(bands);
+            // flush через репозиторий: ошибки JDBC batch приходят как DataAccessException
+            musicBandRepository.flush();
+            entityManager.clear();
+        });
+
+        for (int j = 0; j < bands.size(); j++) {
+            MusicBand band = bands.get(j);
+            results[indexes.get(j)] = new BatchItemResult(indexes.get(j), band.getId(), HttpStatus.CREATED.value(), null);
+            eventPublisher.publishEvent(MusicBandChangedEvent.saved(band));
+        }
+    }
+
+    public BandBatchResponse updateMusicBands(List<BandBatchItem> items) {
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, items.size());
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = from; i < to; i++) {
+                BandBatchItem item = items.get(i);
+                if (item.getId() == null) {
+                    results[i] = new BatchItemResult(i, null, HttpStatus.BAD_REQUEST.value(), "ID группы не может быть пустым");
+                    continue;
+                }
+                if (rejectInvalid(i, item, results)) {
+                    continue;
+                }
+                indexes.add(i);
+                singlesWriteBehindBuffer.flush(item.getId());
+            }
+            writeChunk(indexes, results, i -> items.get(i).getId(), part -> updateChunk(items, part, results));
+        }
+        return toResponse(results);
+    }
+
+    private void updateChunk(List<BandBatchItem> items, List<Integer> indexes, BatchItemResult[] results) {
+        List<MusicBand> updated = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<Integer> ids = indexes.stream().map(i -> items.get(i).getId()).collect(Collectors.toSet());
+            Map<Integer, MusicBand> existing = musicBandRepository.findAllById(ids).stream()
+                    .collect(Collectors.toMap(MusicBand::getId, Function.identity()));
+            for (Integer i : indexes) {
+                BandBatchItem item = items.get(i);
+                MusicBand band = existing.get(item.getId());
+                if (band == null) {
+                    results[i] = new BatchItemResult(i, item.getId(), HttpStatus.NOT_FOUND.value(),
+                            "Объект с ID " + item.getId() + " не существует");
+                    continue;
+                }
+                MusicBandService.applyRequest(band, item);
+                results[i] = new BatchItemResult(i, item.getId(), HttpStatus.OK.value(), null);
+                updated.add(band);
+            }
+            musicBandRepository.flush();
+            entityManager.clear();
+        });
+
+        updated.forEach(band -> eventPublisher.publishEvent(MusicBandChangedEvent.saved(band)));
+    }
+
+    public BandBatchResponse deleteMusicBands(List<Integer> ids) {
+        BatchItemResult[] results = new BatchItemResult[ids.size()];
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Integer> indexes = new ArrayList<>();
+            for (int i = from; i < Math.min(from + chunkSize, ids.size()); i++) {
+                indexes.add(i);
+            }
+            writeChunk(indexes, results, ids::get, part -> deleteChunk(ids, part, results));
+        }
+        return toResponse(results);
+    }
+
+    private void deleteChunk(List<Integer> ids, List<Integer> indexes, BatchItemResult[] results) {
+        Set<Integer> existing = transactionTemplate.execute(status -> {
+            Set<Integer> found = new HashSet<>(musicBandRepository.findExistingIds(
+                    indexes.stream().map(ids::get).collect(Collectors.toSet())));
+            musicBandRepository.deleteAllByIdInBatch(found);
+            return found;
+        });
+
+        for (Integer i : indexes) {
+            Integer id = ids.get(i);
+            if (existing.contains(id)) {
+                results[i] = new BatchItemResult(i, id, HttpStatus.NO_CONTENT.value(), null);
+            } else {
+                results[i] = new BatchItemResult(i, id, HttpStatus.NOT_FOUND.value(), "Объект с ID " + id + " не существует");
+            }
+        }
+        for (Integer id : existing) {
+            singlesWriteBehindBuffer.discard(id);
+            eventPublisher.publishEvent(MusicBandChangedEvent.deleted(id));
+        }
+    }
+
+    /**
+     * Применяет накопленные grammy изменения к группам одной транзакцией: строки блокируются
+     * в порядке id, операции для одной группы суммируются. Участники удаляются, пока в группе больше одного.
+     */
+    public GrammyBatchResponse applyGrammyOperations(List<GrammyBandOperation> operations) {
+        Map<Integer, GrammyBandOperation> merged = new LinkedHashMap<>();
+        for (GrammyBandOperation operation : operations) {
+            merged.merge(operation.getBandId(), operation, (a, b) -> new GrammyBandOperation(a.getBandId(),
+                    a.getSinglesToAdd() + b.getSinglesToAdd(), a.getParticipantsToRemove() + b.getParticipantsToRemove()));
+        }
+
+        List<MusicBand> withSinglesAdded = new ArrayList<>();
+        List<GrammyBandResult> results = transactionTemplate.execute(status -> {
+            Map<Integer, MusicBand> bands = musicBandRepository.findAllByIdForUpdate(merged.keySet()).stream()
+                    .collect(Collectors.toMap(MusicBand::getId, Function.identity()));
+            List<GrammyBandResult> applied = new ArrayList<>();
+            for (GrammyBandOperation operation : merged.values()) {
+                MusicBand band = bands.get(operation.getBandId());
+                if (band == null) {
+                    applied.add(new GrammyBandResult(operation.getBandId(), HttpStatus.NOT_FOUND.value(), 0L, 0,
+                            "Объект с ID " + operation.getBandId() + " не существует"));
+                    continue;
+                }
+                if (operation.getSinglesToAdd() > 0) {
+                    long singles = band.getSinglesCount() == null ? 0 : band.getSinglesCount();
+                    band.setSinglesCount(singles + operation.getSinglesToAdd());
+                    withSinglesAdded.add(band);
+                }
+                int removed = (int) Math.min(operation.getParticipantsToRemove(), band.getNumberOfParticipants() - 1);
+                band.setNumberOfParticipants(band.getNumberOfParticipants() - removed);
+                applied.add(new GrammyBandResult(operation.getBandId(), HttpStatus.OK.value(), operation.getSinglesToAdd(), removed,
+                        removed < operation.getParticipantsToRemove()
+                                ? "Невозможно удалить участника: группа должна иметь минимум 1 участника."
+                                : null));
+            }
+            return applied;
+        });
+
+        // версия в сущностях уже увеличена при flush
+        for (MusicBand band : withSinglesAdded) {
+            eventPublisher.publishEvent(MusicBandChangedEvent.singlesAdded(band.getId(),
+                    merged.get(band.getId()).getSinglesToAdd(), band.getSinglesCount(), band.getVersion()));
+        }
+        // одно событие на группу, сколько бы участников ни было удалено
+        for (GrammyBandResult result : results) {
+            if (result.getParticipantsRemoved() > 0) {
+                eventPublisher.publishEvent(MusicBandChangedEvent.participantRemoved(result.getBandId(), result.getParticipantsRemoved()));
+            }
+        }
+        return new GrammyBatchResponse(results);
+    }
+
+    private boolean rejectInvalid(int index, BandBatchItem item, BatchItemResult[] results) {
+        Set<ConstraintViolation<BandBatchItem>> violations = validator.validate(item);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            results[index] = new BatchItemResult(index, item.getId(), HttpStatus.BAD_REQUEST.value(), message);
+            return true;
+        }
+        try {
+            MusicBandService.checkParticipantsLimit(item);
+        } catch (IllegalArgumentException e) {
+            results[index] = new BatchItemResult(index, item.getId(), HttpStatus.UNPROCESSABLE_ENTITY.value(), e.getMessage());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Записывает часть пакета одной транзакцией. Если запись отклонена из-за данных (ограничение, конфликт версий),
+     * часть делится пополам и записывается заново, так что ошибку получают только проблемные элементы.
+     * Ошибки доступа к БД не связаны с конкретным элементом, и вся часть сразу помечается как неудачная.
+     */
+    private void writeChunk(List<Integer> indexes, BatchItemResult[] results, IntFunction<Integer> idOf,
+                            Consumer<List<Integer>> write) {
+        if (indexes.isEmpty()) {
+            return;
+        }
+        try {
+            write.accept(indexes);
+        } catch (DataAccessException e) {
+            entityManager.clear();
+            if (indexes.size() == 1 || e instanceof TransientDataAccessException
+                    || e instanceof DataAccessResourceFailureException) {
+                failChunk(indexes, results, idOf, e);
+                return;
+            }
+            log.info("Не удалось записать часть пакета из {} групп, запись по частям: {}", indexes.size(), e.getMessage());
+            int middle = indexes.size() / 2;
+            writeChunk(indexes.subList(0, middle), results, idOf, write);
+            writeChunk(indexes.subList(middle, indexes.size()), results, idOf, write);
+        }
+    }
+
+    private void failChunk(List<Integer> indexes, BatchItemResult[] results, IntFunction<Integer> idOf, DataAccessException e) {
+        log.warn("Не удалось записать {} групп пакета: {}", indexes.size(), e.getMessage());
+        boolean conflict = e instanceof DataIntegrityViolationException || e instanceof OptimisticLockingFailureException;
+        for (Integer i : indexes) {
+            if (results[i] == null || results[i].getStatus() < 400) {
+                results[i] = conflict
+                        ? new BatchItemResult(i, idOf.apply(i), HttpStatus.CONFLICT.value(), "Изменение отклонено ограничениями базы данных")
+                        : new BatchItemResult(i, idOf.apply(i), HttpStatus.INTERNAL_SERVER_ERROR.value(), "Ошибка записи в базу данных");
+            }
+        }
+    }
+
+    private BandBatchResponse toResponse(BatchItemResult[] results) {
+        int succeeded = (int) Arrays.stream(results).filter(r -> r.getStatus() < 400).count();
+        return new BandBatchResponse(succeeded, results.length - succeeded, Arrays.asList(results));
+    }
+}
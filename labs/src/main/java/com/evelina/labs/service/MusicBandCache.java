@@ -0,0 +1,101 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.models.Coordinates;
+import com.evelina.labs.models.Label;
+import com.evelina.labs.models.MusicBand;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Кеш групп по id перед GET /bands/{id} (bands.cache.max-size записей, bands.cache.ttl с момента загрузки).
+ * Запись удаляется по каждому MusicBandChangedEvent, то есть после любого изменения группы, включая
+ * добавление синглов и удаление участников из grammy. Тем же событием группа вытесняется из кеша второго уровня
+ * Hibernate, если он включен: часть изменений пишется в обход Hibernate через JDBC.
+ * Загрузка идет в вызывающем потоке вне блокировок Caffeine (см. load), одновременные запросы того же id
+ * ждут ее future.
+ */
+@Component
+public class MusicBandCache {
+
+    private final boolean enabled;
+    private final AsyncCache<Integer, MusicBand> cache;
+    private final EntityManagerFactory entityManagerFactory;
+
+    public MusicBandCache(@Value("${bands.cache.enabled:true}") boolean enabled,
+                          @Value("${bands.cache.max-size:10000}") long maxSize,
+                          @Value("${bands.cache.ttl:10m}") Duration ttl,
+                          EntityManagerFactory entityManagerFactory,
+                          ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.entityManagerFactory = entityManagerFactory;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "bands"));
+    }
+
+    public Optional<MusicBand> get(Integer id, Function<Integer, Optional<MusicBand>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        // отсутствующие группы не кешируются: Caffeine не сохраняет null
+        MusicBand band = load(cache, id, () -> loader.apply(id).map(MusicBandCache::copy).orElse(null));
+        return Optional.ofNullable(band).map(MusicBandCache::copy);
+    }
+
+    @EventListener
+    public void onBandChanged(MusicBandChangedEvent event) {
+        cache.synchronous().invalidate(event.getBandId());
+        entityManagerFactory.getCache().evict(MusicBand.class, event.getBandId());
+    }
+
+    /**
+     * Значение из кеша или загрузка в вызывающем потоке. Cache.get выполнил бы загрузку внутри
+     * ConcurrentHashMap.compute, то есть под монитором: на JDK 21 виртуальный поток, ждущий там соединения
+     * с БД, занимает поток-носитель целиком, и при числе носителей по числу ядер сервер встает.
+     * Под блокировкой здесь только вставка незавершенного future; загрузка, не вернувшая значения
+     * или упавшая, удаляется из кеша самим Caffeine.
+     */
+    static <K, V> V load(AsyncCache<K, V> cache, K key, Supplier<V> loader) {
+        CompletableFuture<V> loading = new CompletableFuture<>();
+        CompletableFuture<V> cached = cache.get(key, (k, executor) -> loading);
+        if (cached == loading) {
+            try {
+                loading.complete(loader.get());
+            } catch (RuntimeException | Error e) {
+                loading.completeExceptionally(e);
+                throw e;
+            }
+        }
+        try {
+            return cached.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    static MusicBand copy(MusicBand band) {
+        return band.toBuilder()
+                .coordinates(band.getCoordinates() == null ? null
+                        : new Coordinates(band.getCoordinates().getX(), band.getCoordinates().getY()))
+                .label(band.getLabel() == null ? null : new Label(band.getLabel().getSales()))
+                .build();
+    }
+}
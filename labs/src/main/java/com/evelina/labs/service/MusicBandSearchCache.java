@@ -0,0 +1,70 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.dto.CountMode;
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.repository.BandProjection;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Кеш страниц /bands/filters по сигнатуре фильтра, странице, сортировке, режиму подсчета и набору полей.
+ * В ключ входит BandWriteGeneration: любое изменение групп увеличивает его, поэтому страница,
+ * прочитанная до изменения, больше не выдается, даже если запрос к БД завершился уже после него.
+ * Изменения, сделанные другими узлами, поколение не увеличивают: такие страницы устаревают по bands.search-cache.ttl.
+ * Объем ограничен суммарным числом групп на закешированных страницах (bands.search-cache.max-bands).
+ */
+@Component
+public class MusicBandSearchCache {
+
+    private final boolean enabled;
+    private final BandWriteGeneration writeGeneration;
+    private final AsyncCache<Key, Slice<MusicBand>> cache;
+
+    public MusicBandSearchCache(@Value("${bands.search-cache.enabled:true}") boolean enabled,
+                                @Value("${bands.search-cache.max-bands:50000}") long maxBands,
+                                @Value("${bands.search-cache.ttl:1m}") Duration ttl,
+                                BandWriteGeneration writeGeneration,
+                                ObjectProvider<MeterRegistry> meterRegistry) {
+        this.enabled = enabled;
+        this.writeGeneration = writeGeneration;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBands)
+                .weigher((Key key, Slice<MusicBand> slice) -> slice.getNumberOfElements() + 1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "band-searches"));
+    }
+
+    public Slice<MusicBand> get(SearchSignature signature, Pageable pageable, CountMode countMode, BandProjection projection,
+                                Supplier<Slice<MusicBand>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Key key = new Key(writeGeneration.current(), signature, pageable.getPageNumber(), pageable.getPageSize(),
+                pageable.getSort(), countMode, projection);
+        return MusicBandCache.load(cache, key, () -> loader.get().map(MusicBandCache::copy));
+    }
+
+    @EventListener
+    public void onBandChanged(MusicBandChangedEvent event) {
+        cache.synchronous().invalidateAll();
+    }
+
+    private record Key(long generation, SearchSignature signature, int page, int size, Sort sort, CountMode countMode,
+                       BandProjection projection) {
+    }
+}
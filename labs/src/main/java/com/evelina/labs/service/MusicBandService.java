@@ -1,121 +1,312 @@
 package com.evelina.labs.service;
 
 import com.evelina.labs.dto.BandSearchRequest;
+import com.evelina.labs.dto.CountMode;
 import com.evelina.labs.dto.MusicBandRequest;
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.exception.InvalidParameterException;
+import com.evelina.labs.exception.PreconditionFailedException;
 import com.evelina.labs.models.MusicBand;
 import com.evelina.labs.models.MusicGenre;
+import com.evelina.labs.repository.BandCursor;
+import com.evelina.labs.repository.BandProjection;
+import com.evelina.labs.repository.BandNameIndex;
 import com.evelina.labs.repository.MusicBandRepository;
 import com.evelina.labs.repository.MusicBandSpecification;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
+/**
+ * Чтения выполняются в read-only транзакциях: Hibernate не делает flush и снимки для dirty checking,
+ * JDBC-соединение помечается read-only (по этому признаку запросы можно направлять на реплику).
+ * Изменения - одна транзакция на операцию, MusicBandChangedEvent публикуется после коммита,
+ * чтобы кеши не перечитали старое состояние до фиксации изменений.
+ */
 @Service
 public class MusicBandService {
 
     private final MusicBandRepository musicBandRepository;
+    private final BandCountEstimator bandCountEstimator;
+    private final BandNameIndex bandNameIndex;
+    private final SinglesCountHistogram singlesCountHistogram;
+    private final SinglesWriteBehindBuffer singlesWriteBehindBuffer;
+    private final MusicBandCache musicBandCache;
+    private final MusicBandSearchCache musicBandSearchCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final MeterRegistry meterRegistry;
 
-    public MusicBandService(MusicBandRepository musicBandRepository) {
+    public MusicBandService(MusicBandRepository musicBandRepository,
+                            BandCountEstimator bandCountEstimator,
+                            BandNameIndex bandNameIndex,
+                            SinglesCountHistogram singlesCountHistogram,
+                            SinglesWriteBehindBuffer singlesWriteBehindBuffer,
+                            MusicBandCache musicBandCache,
+                            MusicBandSearchCache musicBandSearchCache,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            MeterRegistry meterRegistry) {
         this.musicBandRepository = musicBandRepository;
+        this.bandCountEstimator = bandCountEstimator;
+        this.bandNameIndex = bandNameIndex;
+        this.singlesCountHistogram = singlesCountHistogram;
+        this.singlesWriteBehindBuffer = singlesWriteBehindBuffer;
+        this.musicBandCache = musicBandCache;
+        this.musicBandSearchCache = musicBandSearchCache;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
     }
 
     public MusicBand createMusicBand(MusicBandRequest musicBandRequest) {
-        if (musicBandRequest.getNumberOfParticipants() != null && musicBandRequest.getNumberOfParticipants() > 100) {
-            throw new IllegalArgumentException("Количество участников не может превышать 100");
+        checkParticipantsLimit(musicBandRequest);
+        MusicBand musicBand = toMusicBand(musicBandRequest);
+        MusicBand savedBand = transactionTemplate.execute(status -> musicBandRepository.save(musicBand));
+        eventPublisher.publishEvent(MusicBandChangedEvent.saved(savedBand));
+        return savedBand;
+    }
+
+    public Slice<MusicBand> getBandsWithFilterAndPagination(BandSearchRequest request, Pageable pageable, CountMode countMode,
+                                                            BandProjection projection) {
+        validateSearchRequest(request);
+
+        SearchSignature signature = SearchSignature.of(request);
+        return musicBandSearchCache.get(signature, pageable, countMode, projection,
+                () -> timed(signature.getQuery(), signature, countMode, projection, () -> readOnlyTransactionTemplate.execute(
+                        status -> find(MusicBandSpecification.searchByCriteria(request, bandNameIndex), pageable, countMode, signature, projection))));
+    }
+
+    private Slice<MusicBand> find(Specification<MusicBand> spec, Pageable pageable, CountMode countMode,
+                                  SearchSignature signature, BandProjection projection) {
+        if (projection == null) {
+            return switch (countMode) {
+                case EXACT -> musicBandRepository.findAll(spec, pageable);
+                case NONE -> musicBandRepository.findSlice(spec, pageable);
+                case ESTIMATED -> withEstimatedTotal(musicBandRepository.findSlice(spec, pageable), signature, spec);
+            };
         }
-        MusicBand musicBand = MusicBand.builder()
-                .name(musicBandRequest.getName())
-                .coordinates(musicBandRequest.getCoordinates())
-                .numberOfParticipants(musicBandRequest.getNumberOfParticipants())
-                .singlesCount(musicBandRequest.getSinglesCount())
-                .albumsCount(musicBandRequest.getAlbumsCount())
-                .genre(musicBandRequest.getMusicGenre())
-                .label(musicBandRequest.getLabel())
-                .build();
-        return musicBandRepository.save(musicBand);
+        Slice<MusicBand> slice = musicBandRepository.findSlice(spec, pageable, projection);
+        return switch (countMode) {
+            case EXACT -> PageableExecutionUtils.getPage(slice.getContent(), pageable, () -> musicBandRepository.count(spec));
+            case NONE -> slice;
+            case ESTIMATED -> withEstimatedTotal(slice, signature, spec);
+        };
+    }
+
+    public Slice<MusicBand> getBandsWithFilterAfterCursor(BandSearchRequest request, Sort.Order order, String cursor, int size,
+                                                          BandProjection projection) {
+        validateSearchRequest(request);
+
+        Specification<MusicBand> spec = MusicBandSpecification.searchByCriteria(request, bandNameIndex);
+        if (cursor != null && !cursor.isBlank()) {
+            BandCursor bandCursor = BandCursor.decode(cursor);
+            if (!bandCursor.matches(order)) {
+                throw new InvalidParameterException("Параметр sort не совпадает с сортировкой, для которой выдан cursor.");
+            }
+            spec = spec.and(MusicBandSpecification.after(bandCursor));
+        }
+
+        Specification<MusicBand> seekSpec = spec;
+        List<MusicBand> bands = timed("seek", SearchSignature.of(request), CountMode.NONE, projection,
+                () -> readOnlyTransactionTemplate.execute(status -> projection == null
+                        ? musicBandRepository.findAllSeek(seekSpec, order, size + 1)
+                        : musicBandRepository.findAllSeek(seekSpec, order, size + 1, projection)));
+        boolean hasNext = bands.size() > size;
+        return new SliceImpl<>(hasNext ? bands.subList(0, size) : bands, PageRequest.ofSize(size), hasNext);
     }
 
-    public Page<MusicBand> getBandsWithFilterAndPagination(BandSearchRequest request, Pageable pageable) {
+    private void validateSearchRequest(BandSearchRequest request) {
         if (request.getNumberOfParticipants() != null && request.getNumberOfParticipants() > 100) {
             throw new IllegalArgumentException(
                     "Невозможно выполнить фильтрацию: количество участников " +
                             request.getNumberOfParticipants() + " превышает максимально допустимое значение (100)."
             );
         }
-
-        Specification<MusicBand> spec = MusicBandSpecification.searchByCriteria(request);
-        return musicBandRepository.findAll(spec, pageable);
     }
 
     public Optional<MusicBand> getMusicBandById(Integer id) {
-        return musicBandRepository.findById(id);
+        return musicBandCache.get(id, key -> readOnlyTransactionTemplate.execute(status -> musicBandRepository.findById(key)))
+                .map(singlesWriteBehindBuffer::withPending);
     }
 
     public void deleteMusicBandById(Integer id) {
-        if (!musicBandRepository.existsById(id)) {
-            throw new EntityNotFoundException("Группа с ID " + id + " не найдена");
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!musicBandRepository.existsById(id)) {
+                throw new EntityNotFoundException("Группа с ID " + id + " не найдена");
+            }
+            musicBandRepository.deleteById(id);
+        });
+        singlesWriteBehindBuffer.discard(id);
+        eventPublisher.publishEvent(MusicBandChangedEvent.deleted(id));
+    }
+
+    /**
+     * Состояние группы, переданное клиенту в ETag: версия строки и singlesCount с незаписанными приращениями.
+     */
+    public record Revision(long version, Long singlesCount) {
+    }
+
+    /**
+     * PUT задает singlesCount целиком, поэтому незаписанные приращения не записываются перед изменением
+     * (это увеличило бы версию), а входят в новое значение, см. SinglesWriteBehindBuffer.overwrite.
+     *
+     * @param expectedRevisions состояния из If-Match, с которыми допустимо изменение; null - любое
+     */
+    public MusicBand updateMusicBand(Integer id, MusicBandRequest musicBandRequest, List<Revision> expectedRevisions) {
+        checkParticipantsLimit(musicBandRequest);
+        MusicBand savedBand;
+        try {
+            savedBand = singlesWriteBehindBuffer.overwrite(id, pendingDelta -> {
+                MusicBand existingBand = musicBandRepository.findById(id)
+                        .orElseThrow(() -> new EntityNotFoundException("Объект с ID " + id + " не существует"));
+                if (expectedRevisions != null
+                        && !matchesAny(expectedRevisions, SinglesWriteBehindBuffer.plusSingles(existingBand, pendingDelta))) {
+                    throw new PreconditionFailedException("Группа с ID " + id + " изменилась после получения ETag");
+                }
+                applyRequest(existingBand, musicBandRequest);
+                return musicBandRepository.saveAndFlush(existingBand);
+            });
+        } catch (OptimisticLockingFailureException e) {
+            // состояние совпало при чтении, но строку изменили до коммита
+            if (expectedRevisions == null) {
+                throw e;
+            }
+            throw new PreconditionFailedException("Группа с ID " + id + " изменилась после получения ETag");
         }
-        musicBandRepository.deleteById(id);
+        eventPublisher.publishEvent(MusicBandChangedEvent.saved(savedBand));
+        return savedBand;
     }
 
-    public MusicBand updateMusicBand(Integer id, MusicBandRequest musicBandRequest) {
-        MusicBand existingBand = musicBandRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Объект с ID " + id + " не существует"));
+    /**
+     * Состояние совпадает, если совпадает singlesCount, а версия та же или выросла только из-за записи приращений.
+     */
+    private boolean matchesAny(List<Revision> expectedRevisions, MusicBand current) {
+        long version = current.getVersion();
+        return expectedRevisions.stream().anyMatch(revision -> Objects.equals(revision.singlesCount(), current.getSinglesCount())
+                && (revision.version() == version
+                || singlesWriteBehindBuffer.onlyFlushedSince(current.getId(), revision.version(), version)));
+    }
 
+    static void checkParticipantsLimit(MusicBandRequest musicBandRequest) {
         if (musicBandRequest.getNumberOfParticipants() != null && musicBandRequest.getNumberOfParticipants() > 100) {
             throw new IllegalArgumentException("Количество участников не может превышать 100");
         }
+    }
 
-        existingBand.setName(musicBandRequest.getName());
-        existingBand.setCoordinates(musicBandRequest.getCoordinates());
-        existingBand.setNumberOfParticipants(musicBandRequest.getNumberOfParticipants());
-        existingBand.setSinglesCount(musicBandRequest.getSinglesCount());
-        existingBand.setAlbumsCount(musicBandRequest.getAlbumsCount());
-        existingBand.setGenre(musicBandRequest.getMusicGenre());
-        existingBand.setLabel(musicBandRequest.getLabel());
+    static MusicBand toMusicBand(MusicBandRequest musicBandRequest) {
+        return MusicBand.builder()
+                .name(musicBandRequest.getName())
+                .coordinates(musicBandRequest.getCoordinates())
+                .numberOfParticipants(musicBandRequest.getNumberOfParticipants())
+                .singlesCount(musicBandRequest.getSinglesCount())
+                .albumsCount(musicBandRequest.getAlbumsCount())
+                .genre(musicBandRequest.getMusicGenre())
+                .label(musicBandRequest.getLabel())
+                .build();
+    }
 
-        return musicBandRepository.save(existingBand);
+    static void applyRequest(MusicBand band, MusicBandRequest musicBandRequest) {
+        band.setName(musicBandRequest.getName());
+        band.setCoordinates(musicBandRequest.getCoordinates());
+        band.setNumberOfParticipants(musicBandRequest.getNumberOfParticipants());
+        band.setSinglesCount(musicBandRequest.getSinglesCount());
+        band.setAlbumsCount(musicBandRequest.getAlbumsCount());
+        band.setGenre(musicBandRequest.getMusicGenre());
+        band.setLabel(musicBandRequest.getLabel());
     }
 
     public Long getMusicBandsCountBySinglesCount(long singlesCount) {
-        return musicBandRepository.countBySinglesCount(singlesCount);
+        if (singlesCountHistogram.isReady()) {
+            return singlesCountHistogram.countEqual(singlesCount);
+        }
+        return readOnlyTransactionTemplate.execute(status -> musicBandRepository.countBySinglesCount(singlesCount));
     }
 
     public Long getMusicBandsCountBySinglesCountGreaterThan(long singlesCount) {
-        return musicBandRepository.countBySinglesCountGreaterThan(singlesCount);
+        if (singlesCountHistogram.isReady()) {
+            return singlesCountHistogram.countGreaterThan(singlesCount);
+        }
+        return readOnlyTransactionTemplate.execute(status -> musicBandRepository.countBySinglesCountGreaterThan(singlesCount));
     }
 
-    public Page<MusicBand> findByNameContaining(String nameSubstring, Pageable pageable) {
-        return musicBandRepository.findByNameContaining(nameSubstring, pageable);
+    public Slice<MusicBand> findByNameContaining(String nameSubstring, Pageable pageable, CountMode countMode,
+                                                 BandProjection projection) {
+        Specification<MusicBand> spec = bandNameIndex.containing(nameSubstring, false);
+        SearchSignature signature = SearchSignature.ofNameSubstring(nameSubstring);
+        return timed(signature.getQuery(), signature, countMode, projection,
+                () -> readOnlyTransactionTemplate.execute(status -> find(spec, pageable, countMode, signature, projection)));
     }
 
-    public void addSingleToBand(Integer bandId) {
-        MusicBand band = musicBandRepository.findById(bandId)
-                .orElseThrow(() -> new EntityNotFoundException("Группа с ID " + bandId + " не найдена."));
-
-        Long currentSingles = band.getSinglesCount() != null ? band.getSinglesCount() : 0L;
-        band.setSinglesCount(currentSingles + 1);
-
-        musicBandRepository.save(band);
+    private <T> T timed(String query, SearchSignature signature, CountMode countMode, BandProjection projection, Supplier<T> search) {
+        return Timer.builder("bands.search.query")
+                .description("Время поиска групп в базе данных по набору заданных фильтров")
+                .tag("query", query)
+                .tag("shape", signature.shape())
+                .tag("count", countMode.name().toLowerCase())
+                .tag("projection", String.valueOf(projection != null))
+                .register(meterRegistry)
+                .record(search);
     }
 
-    public void removeParticipantFromBand(Integer bandId) {
-        MusicBand band = musicBandRepository.findById(bandId)
-                .orElseThrow(() -> new EntityNotFoundException("Группа с ID " + bandId + " не найдена."));
-
-        Long currentParticipants = band.getNumberOfParticipants() != null ? band.getNumberOfParticipants() : 0L;
+    private Page<MusicBand> withEstimatedTotal(Slice<MusicBand> slice, SearchSignature signature, Specification<MusicBand> spec) {
+        long total = bandCountEstimator.estimate(signature, spec);
+        return new PageImpl<>(slice.getContent(), slice.getPageable(), total);
+    }
 
-        if (currentParticipants <= 1) {
-            throw new IllegalArgumentException("Невозможно удалить участника: группа должна иметь минимум 1 участника.");
+    public void addSingleToBand(Integer bandId) {
+        if (singlesWriteBehindBuffer.isEnabled()) {
+            // существование проверяется по гистограмме без запроса к БД; группу, удаленную до flush, отбросит сам flush
+            boolean exists = singlesCountHistogram.isReady()
+                    ? singlesCountHistogram.contains(bandId)
+                    : readOnlyTransactionTemplate.execute(status -> musicBandRepository.existsById(bandId));
+            if (!exists) {
+                throw new EntityNotFoundException("Группа с ID " + bandId + " не найдена.");
+            }
+            singlesWriteBehindBuffer.add(bandId, 1);
+            return;
         }
-        band.setNumberOfParticipants(currentParticipants - 1);
+        Object[] after = transactionTemplate.execute(status -> {
+            if (musicBandRepository.addSingles(bandId, 1) == 0) {
+                throw new EntityNotFoundException("Группа с ID " + bandId + " не найдена.");
+            }
+            return musicBandRepository.findSinglesCountAndVersion(bandId).get(0);
+        });
+        eventPublisher.publishEvent(MusicBandChangedEvent.singlesAdded(bandId, 1, (Long) after[0], (Long) after[1]));
+    }
 
-        musicBandRepository.save(band);
+    public void removeParticipantFromBand(Integer bandId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (musicBandRepository.removeParticipant(bandId) == 0) {
+                if (!musicBandRepository.existsById(bandId)) {
+                    throw new EntityNotFoundException("Группа с ID " + bandId + " не найдена.");
+                }
+                throw new IllegalArgumentException("Невозможно удалить участника: группа должна иметь минимум 1 участника.");
+            }
+        });
+        eventPublisher.publishEvent(MusicBandChangedEvent.participantRemoved(bandId, 1));
     }
 }
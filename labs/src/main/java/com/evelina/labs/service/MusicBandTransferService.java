@@ -0,0 +1,357 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.dto.BandImportResponse;
+import com.evelina.labs.dto.BatchItemResult;
+import com.evelina.labs.dto.MusicBandRequest;
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.exception.InvalidParameterException;
+import com.evelina.labs.models.Coordinates;
+import com.evelina.labs.models.Label;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.models.MusicGenre;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Потоковая выгрузка и загрузка всего каталога групп в XML.
+ * Выгрузка читает music_band курсором (fetch size = bands.transfer.chunk-size) и сразу пишет строки через StAX,
+ * загрузка разбирает документ по одному элементу band и вставляет группы JDBC batch'ами, фиксируя каждую часть
+ * отдельной транзакцией. В памяти одновременно находится не больше одной части.
+ */
+@Slf4j
+@Service
+public class MusicBandTransferService {
+
+    private static final String SELECT_SQL = "SELECT id, name, x, y, creation_date, number_of_participants, "
+            + "singles_count, albums_count, genre, sales FROM music_band ORDER BY id";
+    private static final String INSERT_SQL = "INSERT INTO music_band (id, name, x, y, creation_date, number_of_participants, "
+            + "singles_count, albums_count, genre, sales) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String NEXT_ID_SQL = "SELECT nextval('" + MusicBand.ID_SEQUENCE + "')";
+
+    private static final String ROOT = "bands";
+    private static final String BAND = "band";
+    private static final Set<String> BAND_FIELDS = Set.of("id", "name", "creationDate", "numberOfParticipants",
+            "singlesCount", "albumsCount", "genre", "musicGenre");
+
+    private final XMLInputFactory inputFactory;
+    private final XMLOutputFactory outputFactory = XMLOutputFactory.newFactory();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final Validator validator;
+    private final SinglesWriteBehindBuffer singlesWriteBehindBuffer;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int maxReportedErrors;
+
+    // импорты идут по одному; ReentrantLock, а не synchronized: импорт ждет БД, а виртуальный поток,
+    // ждущий под монитором, на JDK 21 занимает поток-носитель
+    private final ReentrantLock importLock = new ReentrantLock();
+    private long nextId;
+    private long lastAllocatedId;
+
+    public MusicBandTransferService(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    Validator validator,
+                                    SinglesWriteBehindBuffer singlesWriteBehindBuffer,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${bands.transfer.chunk-size:5000}") int chunkSize,
+                                    @Value("${bands.transfer.max-reported-errors:1000}") int maxReportedErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.validator = validator;
+        this.singlesWriteBehindBuffer = singlesWriteBehindBuffer;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.maxReportedErrors = maxReportedErrors;
+
+        inputFactory = XMLInputFactory.newFactory();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    public void exportMusicBands(OutputStream outputStream) {
+        singlesWriteBehindBuffer.flush();
+        readOnlyTransactionTemplate.executeWithoutResult(status -> {
+            try {
+                XMLStreamWriter writer = outputFactory.createXMLStreamWriter(outputStream, "UTF-8");
+                writer.writeStartDocument("UTF-8", "1.0");
+                writer.writeStartElement(ROOT);
+                long[] written = {0};
+                jdbcTemplate.query(connection -> {
+                    var statement = connection.prepareStatement(SELECT_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    statement.setFetchSize(chunkSize);
+                    return statement;
+                }, resultSet -> {
+                    writeBand(writer, resultSet);
+                    if (++written[0] % chunkSize == 0) {
+                        flush(writer);
+                    }
+                });
+                writer.writeEndElement();
+                writer.writeEndDocument();
+                writer.close();
+            } catch (XMLStreamException e) {
+                throw new IllegalStateException("Ошибка записи XML", e);
+            }
+        });
+    }
+
+    public BandImportResponse importMusicBands(InputStream inputStream) {
+        importLock.lock();
+        try {
+            return importChunks(inputStream);
+        } finally {
+            importLock.unlock();
+        }
+    }
+
+    private BandImportResponse importChunks(InputStream inputStream) {
+        List<BatchItemResult> errors = new ArrayList<>();
+        List<MusicBand> chunk = new ArrayList<>(chunkSize);
+        long imported = 0;
+        long rejected = 0;
+        int index = 0;
+        try {
+            XMLStreamReader reader = inputFactory.createXMLStreamReader(inputStream);
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT || !BAND.equals(reader.getLocalName())) {
+                    continue;
+                }
+                String error;
+                MusicBand band = null;
+                try {
+                    band = readBand(reader);
+                    error = validate(band);
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+                if (error != null) {
+                    rejected++;
+                    if (errors.size() < maxReportedErrors) {
+                        errors.add(new BatchItemResult(index, null, HttpStatus.BAD_REQUEST.value(), error));
+                    }
+                } else {
+                    chunk.add(band);
+                    if (chunk.size() == chunkSize) {
+                        imported += insertChunk(chunk);
+                    }
+                }
+                index++;
+            }
+            reader.close();
+        } catch (XMLStreamException e) {
+            imported += insertChunk(chunk);
+            throw new InvalidParameterException("Некорректный XML после элемента " + index + " (загружено групп: "
+                    + imported + "): " + e.getMessage());
+        }
+        imported += insertChunk(chunk);
+        return new BandImportResponse(imported, rejected, errors);
+    }
+
+    private int insertChunk(List<MusicBand> chunk) {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            for (MusicBand band : chunk) {
+                band.setId(allocateId());
+            }
+            jdbcTemplate.batchUpdate(INSERT_SQL, chunk, chunk.size(), (statement, band) -> {
+                statement.setInt(1, band.getId());
+                statement.setString(2, band.getName());
+                statement.setInt(3, band.getCoordinates().getX());
+                statement.setLong(4, band.getCoordinates().getY());
+                statement.setTimestamp(5, Timestamp.valueOf(band.getCreationDate()));
+                statement.setLong(6, band.getNumberOfParticipants());
+                statement.setObject(7, band.getSinglesCount());
+                statement.setObject(8, band.getAlbumsCount());
+                statement.setString(9, band.getGenre().name());
+                statement.setObject(10, band.getLabel() == null ? null : band.getLabel().getSales());
+            });
+        });
+        chunk.forEach(band -> eventPublisher.publishEvent(MusicBandChangedEvent.saved(band)));
+        int inserted = chunk.size();
+        log.info("Загружено {} групп, последний ID {}", inserted, chunk.get(inserted - 1).getId());
+        chunk.clear();
+        return inserted;
+    }
+
+    //id выдаются так же, как pooled-оптимизатор Hibernate: значение последовательности - верхняя граница блока
+    private int allocateId() {
+        if (nextId == 0 || nextId > lastAllocatedId) {
+            lastAllocatedId = jdbcTemplate.queryForObject(NEXT_ID_SQL, Long.class);
+            nextId = lastAllocatedId - MusicBand.ID_ALLOCATION_SIZE + 1;
+        }
+        return Math.toIntExact(nextId++);
+    }
+
+    private String validate(MusicBand band) {
+        MusicBandRequest request = new MusicBandRequest(band.getName(), band.getCoordinates(), band.getNumberOfParticipants(),
+                band.getSinglesCount(), band.getAlbumsCount(), band.getGenre(), band.getLabel());
+        //в хранимых данных лейбл необязателен (label в music_band nullable), обязателен он только для API
+        List<ConstraintViolation<MusicBandRequest>> violations = validator.validate(request).stream()
+                .filter(v -> !"label".equals(v.getPropertyPath().toString()))
+                .toList();
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+        }
+        try {
+            MusicBandService.checkParticipantsLimit(request);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    private MusicBand readBand(XMLStreamReader reader) throws XMLStreamException {
+        MusicBand band = new MusicBand();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "coordinates" -> band.setCoordinates(readCoordinates(reader));
+                case "label" -> band.setLabel(readLabel(reader));
+                default -> setField(band, reader.getLocalName(), reader.getElementText().trim());
+            }
+        }
+        if (band.getCreationDate() == null) {
+            band.setCreationDate(LocalDateTime.now());
+        }
+        return band;
+    }
+
+    private void setField(MusicBand band, String element, String value) {
+        if (!BAND_FIELDS.contains(element)) {
+            throw new IllegalArgumentException("Неизвестное поле '" + element + "'");
+        }
+        if (value.isEmpty()) {
+            return;
+        }
+        try {
+            switch (element) {
+                case "name" -> band.setName(value);
+                case "creationDate" -> band.setCreationDate(LocalDateTime.parse(value));
+                case "numberOfParticipants" -> band.setNumberOfParticipants(Long.valueOf(value));
+                case "singlesCount" -> band.setSinglesCount(Long.valueOf(value));
+                case "albumsCount" -> band.setAlbumsCount(Integer.valueOf(value));
+                case "genre", "musicGenre" -> band.setGenre(MusicGenre.valueOf(value));
+                default -> { } //ID назначаются заново из последовательности
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректное значение поля " + element + ": " + value);
+        }
+    }
+
+    private Coordinates readCoordinates(XMLStreamReader reader) throws XMLStreamException {
+        Coordinates coordinates = new Coordinates();
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String element = reader.getLocalName();
+            String value = reader.getElementText().trim();
+            try {
+                switch (element) {
+                    case "x" -> coordinates.setX(Integer.valueOf(value));
+                    case "y" -> coordinates.setY(Long.parseLong(value));
+                    default -> throw new IllegalArgumentException("Неизвестное поле 'coordinates." + element + "'");
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректное значение поля coordinates." + element + ": " + value);
+            }
+        }
+        return coordinates;
+    }
+
+    private Label readLabel(XMLStreamReader reader) throws XMLStreamException {
+        Label label = null;
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            String element = reader.getLocalName();
+            String value = reader.getElementText().trim();
+            if (!"sales".equals(element)) {
+                throw new IllegalArgumentException("Неизвестное поле 'label." + element + "'");
+            }
+            try {
+                label = new Label(Long.parseLong(value));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректное значение поля label.sales: " + value);
+            }
+        }
+        return label;
+    }
+
+    private void writeBand(XMLStreamWriter writer, ResultSet resultSet) throws SQLException {
+        try {
+            writer.writeStartElement(BAND);
+            writeElement(writer, "id", resultSet.getInt("id"));
+            writeElement(writer, "name", resultSet.getString("name"));
+            writer.writeStartElement("coordinates");
+            writeElement(writer, "x", resultSet.getInt("x"));
+            writeElement(writer, "y", resultSet.getObject("y"));
+            writer.writeEndElement();
+            writeElement(writer, "creationDate", resultSet.getTimestamp("creation_date").toLocalDateTime());
+            writeElement(writer, "numberOfParticipants", resultSet.getLong("number_of_participants"));
+            writeElement(writer, "singlesCount", resultSet.getObject("singles_count"));
+            writeElement(writer, "albumsCount", resultSet.getObject("albums_count"));
+            writeElement(writer, "genre", resultSet.getString("genre"));
+            Object sales = resultSet.getObject("sales");
+            if (sales != null) {
+                writer.writeStartElement("label");
+                writeElement(writer, "sales", sales);
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        } catch (XMLStreamException e) {
+            throw new IllegalStateException("Ошибка записи XML", e);
+        }
+    }
+
+    private void writeElement(XMLStreamWriter writer, String name, Object value) throws XMLStreamException {
+        if (value == null) {
+            return;
+        }
+        writer.writeStartElement(name);
+        writer.writeCharacters(value.toString());
+        writer.writeEndElement();
+    }
+
+    private void flush(XMLStreamWriter writer) {
+        try {
+            writer.flush();
+        } catch (XMLStreamException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? new UncheckedIOException(io) : new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.dto.BandSearchRequest;
+import com.evelina.labs.models.MusicGenre;
+import lombok.Value;
+
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/**
+ * Нормализованный набор фильтров поиска: одинаковые по смыслу запросы дают равные сигнатуры.
+ */
+@Value
+public class SearchSignature {
+
+    String query;
+    String name;
+    MusicGenre genre;
+    Long numberOfParticipants;
+    Long singlesCount;
+    Integer albumsCount;
+
+    public static SearchSignature of(BandSearchRequest request) {
+        String name = request.getName() == null || request.getName().isBlank() ? null : request.getName().toLowerCase(Locale.ROOT);
+        return new SearchSignature("filters", name, request.getGenre(), request.getNumberOfParticipants(),
+                request.getSinglesCount(), request.getAlbumsCount());
+    }
+
+    public static SearchSignature ofNameSubstring(String nameSubstring) {
+        return new SearchSignature("name", nameSubstring, null, null, null, null);
+    }
+
+    /**
+     * Однозначная строка фильтров и дополнительных параметров запроса: каждое значение записывается с длиной,
+     * null - отдельным маркером, поэтому разные наборы параметров не склеиваются в одну строку.
+     */
+    public String canonical(Object... parameters) {
+        StringBuilder canonical = new StringBuilder();
+        for (Object value : new Object[]{query, name, genre, numberOfParticipants, singlesCount, albumsCount}) {
+            appendCanonical(canonical, value);
+        }
+        for (Object value : parameters) {
+            appendCanonical(canonical, value);
+        }
+        return canonical.toString();
+    }
+
+    private static void appendCanonical(StringBuilder canonical, Object value) {
+        if (value == null) {
+            canonical.append("-;");
+            return;
+        }
+        String text = value.toString();
+        canonical.append(text.length()).append(':').append(text).append(';');
+    }
+
+    public boolean isUnfiltered() {
+        return name == null && genre == null && numberOfParticipants == null && singlesCount == null && albumsCount == null;
+    }
+
+    /**
+     * Какие фильтры заданы, без их значений: "name+genre", "none". Используется как тег метрик запросов.
+     */
+    public String shape() {
+        StringJoiner shape = new StringJoiner("+");
+        if (name != null) {
+            shape.add("name");
+        }
+        if (genre != null) {
+            shape.add("genre");
+        }
+        if (numberOfParticipants != null) {
+            shape.add("participants");
+        }
+        if (singlesCount != null) {
+            shape.add("singles");
+        }
+        if (albumsCount != null) {
+            shape.add("albums");
+        }
+        return shape.length() == 0 ? "none" : shape.toString();
+    }
+}
@@ -0,0 +1,221 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.repository.MusicBandRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Гистограмма значений singlesCount в памяти: отвечает на /bands/singles/equally и /bands/singles/greater
+ * за O(log n) без обращения к БД. Обновляется по MusicBandChangedEvent и периодически сверяется с таблицей.
+ * Для каждой группы хранятся последние применённые singlesCount и версия строки: событие применяется,
+ * только если оно новее, поэтому повторы и события, уже вошедшие в снимок таблицы, не учитываются дважды.
+ */
+@Slf4j
+@Component
+public class SinglesCountHistogram {
+
+    private final MusicBandRepository musicBandRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private State state;
+    private List<MusicBandChangedEvent> pendingDuringRebuild;
+
+    public SinglesCountHistogram(MusicBandRepository musicBandRepository,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${bands.singles-histogram.enabled:true}") boolean enabled) {
+        this.musicBandRepository = musicBandRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.enabled = enabled;
+    }
+
+    public boolean isReady() {
+        lock.readLock().lock();
+        try {
+            return state != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long countEqual(long singlesCount) {
+        lock.readLock().lock();
+        try {
+            return state.counts.countAtMost(singlesCount) - state.counts.countAtMost(singlesCount - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long countGreaterThan(long singlesCount) {
+        lock.readLock().lock();
+        try {
+            return state.counts.total() - state.counts.countAtMost(singlesCount);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Есть ли группа в таблице по последним примененным событиям. Вызывать только после isReady().
+     */
+    public boolean contains(Integer bandId) {
+        lock.readLock().lock();
+        try {
+            return state.contains(bandId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (enabled) {
+            reconcile();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bands.singles-histogram.reconcile-interval:PT5M}",
+            initialDelayString = "${bands.singles-histogram.reconcile-interval:PT5M}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            pendingDuringRebuild = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        State rebuilt = new State();
+        try {
+            // строки читаются курсором, в памяти остаются только массивы по id, а не копия таблицы
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = musicBandRepository.streamSinglesCounts()) {
+                    rows.forEach(row -> rebuilt.set((Integer) row[0], (Long) row[1], (Long) row[2]));
+                }
+            });
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingDuringRebuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            // события, закоммиченные до чтения строки, уже есть в снимке и отбрасываются по версии
+            for (MusicBandChangedEvent event : pendingDuringRebuild) {
+                rebuilt.apply(event);
+            }
+            if (state != null && state.counts.total() != rebuilt.counts.total()) {
+                log.info("Гистограмма singlesCount расходилась с таблицей: {} -> {} групп",
+                        state.counts.total(), rebuilt.counts.total());
+            }
+            state = rebuilt;
+            pendingDuringRebuild = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener
+    public void onBandChanged(MusicBandChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (pendingDuringRebuild != null) {
+                pendingDuringRebuild.add(event);
+            }
+            if (state != null) {
+                state.apply(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * singlesCount и версия группы лежат в массивах по id (16 байт на группу): id выдаются последовательностью,
+     * поэтому массивы плотные. Версия хранится со сдвигом на 1, чтобы 0 означал неизвестную группу.
+     */
+    static final class State {
+
+        private static final long UNKNOWN = 0;
+        private static final long DELETED = Long.MAX_VALUE;
+        private static final long NO_SINGLES = Long.MIN_VALUE;
+
+        final SinglesCountTree counts = new SinglesCountTree();
+        private long[] versions = new long[1 << 10];
+        private long[] singles = new long[1 << 10];
+
+        void apply(MusicBandChangedEvent event) {
+            switch (event.getType()) {
+                case SAVED, SINGLES_ADDED -> set(event.getBandId(), event.getSinglesCount(), event.getVersion());
+                case DELETED -> delete(event.getBandId());
+                default -> {
+                }
+            }
+        }
+
+        void set(Integer bandId, Long singlesCount, Long version) {
+            update(bandId, singlesCount, (version == null ? 0 : version) + 1);
+        }
+
+        void delete(Integer bandId) {
+            update(bandId, null, DELETED);
+        }
+
+        boolean contains(int bandId) {
+            return bandId >= 0 && bandId < versions.length
+                    && versions[bandId] != UNKNOWN && versions[bandId] != DELETED;
+        }
+
+        private void update(int bandId, Long singlesCount, long storedVersion) {
+            if (bandId < 0) {
+                return;
+            }
+            ensureCapacity(bandId);
+            long current = versions[bandId];
+            if (current != UNKNOWN && current >= storedVersion) {
+                return;
+            }
+            if (current != UNKNOWN && current != DELETED && singles[bandId] != NO_SINGLES) {
+                counts.add(singles[bandId], -1);
+            }
+            versions[bandId] = storedVersion;
+            singles[bandId] = singlesCount == null || storedVersion == DELETED ? NO_SINGLES : singlesCount;
+            if (singles[bandId] != NO_SINGLES) {
+                counts.add(singlesCount, 1);
+            }
+        }
+
+        private void ensureCapacity(int bandId) {
+            if (bandId < versions.length) {
+                return;
+            }
+            int size = (int) Math.max(bandId + 1L, Math.min(versions.length * 2L, Integer.MAX_VALUE - 8));
+            versions = Arrays.copyOf(versions, size);
+            singles = Arrays.copyOf(singles, size);
+        }
+    }
+}
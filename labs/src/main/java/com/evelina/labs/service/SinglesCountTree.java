@@ -0,0 +1,91 @@
+package com.evelina.labs.service;
+
+import java.util.TreeMap;
+
+/**
+ * Число групп по значению singlesCount. Значения меньше MAX_TREE_SIZE хранятся в дереве Фенвика,
+ * которое растет удвоением, более крупные - в отсортированном словаре overflow.
+ * Значения меньше 1 (в том числе отсутствующий singlesCount) учитываются только в total.
+ * Не потокобезопасен.
+ */
+class SinglesCountTree {
+
+    static final int INITIAL_TREE_SIZE = 1 << 10;
+    static final int MAX_TREE_SIZE = 1 << 20;
+
+    private final TreeMap<Long, Long> overflow = new TreeMap<>();
+    private long[] tree = new long[INITIAL_TREE_SIZE];
+    private long total;
+
+    long total() {
+        return total;
+    }
+
+    int treeSize() {
+        return tree.length;
+    }
+
+    int overflowSize() {
+        return overflow.size();
+    }
+
+    long countAtMost(long value) {
+        if (value < 1) {
+            return 0;
+        }
+        long count = 0;
+        for (int i = (int) Math.min(value, tree.length - 1); i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        if (value >= tree.length) {
+            for (long bucket : overflow.headMap(value, true).values()) {
+                count += bucket;
+            }
+        }
+        return count;
+    }
+
+    void add(long value, long delta) {
+        total += delta;
+        if (value < 1) {
+            return;
+        }
+        if (value >= tree.length) {
+            grow(value);
+        }
+        if (value >= tree.length) {
+            overflow.merge(value, delta, (a, b) -> a + b == 0 ? null : a + b);
+            return;
+        }
+        for (int i = (int) value; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private void grow(long value) {
+        int size = tree.length;
+        while (size <= value && size < MAX_TREE_SIZE) {
+            size <<= 1;
+        }
+        if (size == tree.length) {
+            return;
+        }
+        long[] counts = new long[size];
+        for (int i = 1; i < tree.length; i++) {
+            counts[i] = countAtMost(i) - countAtMost(i - 1);
+        }
+        TreeMap<Long, Long> moved = new TreeMap<>(overflow.headMap((long) size, false));
+        overflow.keySet().removeAll(moved.keySet());
+        moved.forEach((v, c) -> counts[(int) (long) v] += c);
+
+        long[] grown = new long[size];
+        for (int i = 1; i < size; i++) {
+            grown[i] += counts[i];
+            int parent = i + (i & -i);
+            if (parent < size) {
+                grown[parent] += grown[i];
+            }
+        }
+        tree = grown;
+    }
+}
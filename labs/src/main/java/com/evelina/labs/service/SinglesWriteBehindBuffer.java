@@ -0,0 +1,242 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.models.MusicBand;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Отложенная запись приращений singlesCount: добавления синглов копятся в памяти по группам
+ * и раз в flush-interval записываются одним batch UPDATE. Число незаписанных синглов ограничено max-pending,
+ * при превышении запись выполняется сразу в вызывающем потоке.
+ * Приращения остаются в буфере, пока UPDATE не закоммичен: при ошибке записи они не теряются и уходят
+ * в следующий flush. Для записываемой части запоминается версия строки после UPDATE, поэтому
+ * withPending не добавляет ее к группе, прочитанной уже после коммита.
+ * Запись приращений увеличивает версию строки, не меняя представления группы (singlesCount с приращениями
+ * тот же), поэтому буфер помнит такие версии: по ним If-Match с ETag, полученным до записи, еще совпадает.
+ */
+@Slf4j
+@Component
+public class SinglesWriteBehindBuffer {
+
+    private static final String ADD_SINGLES_SQL =
+            "UPDATE music_band SET singles_count = coalesce(singles_count, 0) + ?, version = version + 1 WHERE id = ?";
+    private static final String SELECT_WRITTEN_SQL = "SELECT id, singles_count, version FROM music_band WHERE id IN (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final long maxPending;
+
+    private final Map<Integer, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong pendingTotal = new AtomicLong();
+    // группа -> {версия до первой записи приращений подряд, версия после последней}
+    private final Map<Integer, long[]> flushedVersions = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public SinglesWriteBehindBuffer(JdbcTemplate jdbcTemplate,
+                                    TransactionTemplate transactionTemplate,
+                                    ApplicationEventPublisher eventPublisher,
+                                    @Value("${bands.singles-write-behind.enabled:false}") boolean enabled,
+                                    @Value("${bands.singles-write-behind.max-pending:10000}") long maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void add(Integer bandId, long delta) {
+        // если запись не удалась, приращение не принимается и вызывающий получает ошибку
+        if (pendingTotal.get() + delta > maxPending) {
+            flush();
+        }
+        pending.merge(bandId, new Pending(delta, 0, 0), Pending::plus);
+        pendingTotal.addAndGet(delta);
+    }
+
+    public MusicBand withPending(MusicBand band) {
+        Pending entry = pending.get(band.getId());
+        return plusSingles(band, entry == null ? 0 : entry.unwrittenFor(band.getVersion()));
+    }
+
+    static MusicBand plusSingles(MusicBand band, long delta) {
+        if (delta == 0) {
+            return band;
+        }
+        long singles = band.getSinglesCount() != null ? band.getSinglesCount() : 0L;
+        return band.toBuilder().singlesCount(singles + delta).build();
+    }
+
+    /**
+     * true, если с версии clientVersion до currentVersion строку меняла только запись приращений этим узлом.
+     */
+    public boolean onlyFlushedSince(Integer bandId, long clientVersion, long currentVersion) {
+        long[] versions = flushedVersions.get(bandId);
+        return versions != null && versions[1] == currentVersion && versions[0] <= clientVersion && clientVersion < currentVersion;
+    }
+
+    public void discard(Integer bandId) {
+        Pending entry = pending.remove(bandId);
+        if (entry != null) {
+            pendingTotal.addAndGet(-entry.delta());
+        }
+        flushedVersions.remove(bandId);
+    }
+
+    /**
+     * Изменение, задающее singlesCount группы целиком (PUT). update получает незаписанное приращение группы,
+     * выполняется в транзакции и возвращает сохраненную (flush) группу. Приращение не пишется отдельно,
+     * а входит в новое значение и после коммита отбрасывается; flush на это время не выполняется,
+     * иначе оно прибавилось бы поверх. Приращения, пришедшие во время изменения, остаются в буфере.
+     */
+    public MusicBand overwrite(Integer bandId, LongFunction<MusicBand> update) {
+        flushLock.lock();
+        try {
+            Pending entry = pending.get(bandId);
+            long delta = entry == null ? 0 : entry.delta();
+            MusicBand saved;
+            try {
+                saved = transactionTemplate.execute(status -> {
+                    MusicBand band = update.apply(delta);
+                    if (delta > 0) {
+                        pending.computeIfPresent(bandId, (id, current) -> current.writing(delta, band.getVersion()));
+                    }
+                    return band;
+                });
+            } catch (RuntimeException e) {
+                pending.computeIfPresent(bandId, (id, current) -> current.written(0));
+                throw e;
+            }
+            if (delta > 0) {
+                pending.computeIfPresent(bandId, (id, current) -> {
+                    pendingTotal.addAndGet(-delta);
+                    return current.written(delta);
+                });
+            }
+            return saved;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public void flush(Integer bandId) {
+        flushLock.lock();
+        try {
+            Pending entry = pending.get(bandId);
+            if (entry != null) {
+                write(Map.of(bandId, entry.delta()));
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bands.singles-write-behind.flush-interval:100ms}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // один писатель за раз, иначе параллельные flush записали бы одно приращение дважды
+        flushLock.lock();
+        try {
+            Map<Integer, Long> batch = new LinkedHashMap<>();
+            pending.forEach((bandId, entry) -> batch.put(bandId, entry.delta()));
+            write(batch);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void write(Map<Integer, Long> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Object[]> args = new ArrayList<>();
+        batch.forEach((bandId, delta) -> args.add(new Object[]{delta, bandId}));
+        Map<Integer, long[]> written = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(ADD_SINGLES_SQL, args);
+                // новые singlesCount и версии читаются в той же транзакции, пока строки заблокированы UPDATE
+                String ids = batch.keySet().stream().map(id -> "?").collect(Collectors.joining(", "));
+                jdbcTemplate.query(SELECT_WRITTEN_SQL.replace("?", ids),
+                        (RowCallbackHandler) row -> written.put(row.getInt(1), new long[]{row.getLong(2), row.getLong(3)}),
+                        batch.keySet().toArray());
+                written.forEach((bandId, after) -> pending.computeIfPresent(bandId,
+                        (id, entry) -> entry.writing(batch.get(id), after[1])));
+            });
+        } catch (RuntimeException e) {
+            batch.keySet().forEach(bandId -> pending.computeIfPresent(bandId, (id, entry) -> entry.written(0)));
+            throw e;
+        }
+
+        batch.forEach((bandId, delta) -> {
+            pending.computeIfPresent(bandId, (id, entry) -> {
+                pendingTotal.addAndGet(-delta);
+                return entry.written(delta);
+            });
+            long[] after = written.get(bandId);
+            if (after == null) {
+                log.warn("Группа с ID {} удалена, {} незаписанных синглов отброшено", bandId, delta);
+            } else {
+                // UPDATE увеличил версию ровно на 1: цепочка продолжается, если предыдущую версию тоже записал буфер
+                long version = after[1];
+                flushedVersions.merge(bandId, new long[]{version - 1, version},
+                        (previous, current) -> previous[1] == version - 1 ? new long[]{previous[0], version} : current);
+                eventPublisher.publishEvent(MusicBandChangedEvent.singlesAdded(bandId, delta, after[0], after[1]));
+            }
+        });
+    }
+
+    /**
+     * delta - все незаписанные приращения группы, из них inFlight уже записаны транзакцией,
+     * после коммита которой версия строки станет не меньше writtenVersion.
+     */
+    private record Pending(long delta, long inFlight, long writtenVersion) {
+
+        Pending plus(Pending other) {
+            return new Pending(delta + other.delta, inFlight, writtenVersion);
+        }
+
+        Pending writing(long written, long version) {
+            return new Pending(delta, written, version);
+        }
+
+        Pending written(long written) {
+            return delta == written ? null : new Pending(delta - written, 0, 0);
+        }
+
+        long unwrittenFor(Long version) {
+            return inFlight > 0 && version != null && version >= writtenVersion ? delta - inFlight : delta;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+CREATE TABLE music_band (
+    id                     INTEGER GENERATED BY DEFAULT AS IDENTITY,
+    name                   VARCHAR(255) NOT NULL,
+    x                      INTEGER      NOT NULL,
+    y                      BIGINT,
+    creation_date          TIMESTAMP(6) NOT NULL,
+    number_of_participants BIGINT       NOT NULL CHECK (number_of_participants >= 1),
+    singles_count          BIGINT CHECK (singles_count >= 1),
+    albums_count           INTEGER CHECK (albums_count >= 1),
+    genre                  VARCHAR(255) NOT NULL CHECK (genre IN ('PROGRESSIVE_ROCK', 'HIP_HOP', 'PUNK_ROCK')),
+    sales                  BIGINT,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,8 @@
+CREATE TABLE idempotency_key (
+    idempotency_key VARCHAR(255) NOT NULL,
+    fingerprint     VARCHAR(255) NOT NULL,
+    created_at      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (idempotency_key)
+);
+
+CREATE INDEX idx_idempotency_key_created_at ON idempotency_key (created_at);
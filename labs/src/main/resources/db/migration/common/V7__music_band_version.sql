@@ -0,0 +1,2 @@
+-- версия строки для оптимистической блокировки и ETag в GET /bands/{id}
+ALTER TABLE music_band ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,2 @@
+-- pooled-генератор id (allocationSize = 50) вместо IDENTITY, чтобы Hibernate мог группировать INSERT в JDBC batch
+CREATE SEQUENCE music_band_id_seq START WITH 100 INCREMENT BY 50;
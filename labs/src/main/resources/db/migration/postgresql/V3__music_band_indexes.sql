@@ -0,0 +1,16 @@
+-- CONCURRENTLY: индексы строятся без блокировки записи в music_band; Flyway выполняет такой скрипт вне транзакции,
+-- поэтому других операторов здесь быть не должно
+-- countBySinglesCount / countBySinglesCountGreaterThan и фильтр singlesCount: index-only scan,
+-- (singles_count, id) также обслуживает сортировку и keyset-пагинацию по singlesCount
+CREATE INDEX CONCURRENTLY music_band_singles_count_idx ON music_band (singles_count, id) WHERE singles_count IS NOT NULL;
+CREATE INDEX CONCURRENTLY music_band_albums_count_idx ON music_band (albums_count, id) WHERE albums_count IS NOT NULL;
+CREATE INDEX CONCURRENTLY music_band_participants_idx ON music_band (number_of_participants, id);
+
+-- genre = ? в комбинации с остальными фильтрами MusicBandSpecification
+CREATE INDEX CONCURRENTLY music_band_genre_participants_idx ON music_band (genre, number_of_participants);
+CREATE INDEX CONCURRENTLY music_band_genre_singles_count_idx ON music_band (genre, singles_count);
+CREATE INDEX CONCURRENTLY music_band_genre_albums_count_idx ON music_band (genre, albums_count);
+
+-- сортировки из parseSort (id покрыт первичным ключом)
+CREATE INDEX CONCURRENTLY music_band_creation_date_idx ON music_band (creation_date, id);
+CREATE INDEX CONCURRENTLY music_band_name_idx ON music_band (name, id);
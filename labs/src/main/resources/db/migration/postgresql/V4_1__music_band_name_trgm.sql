@@ -0,0 +1,2 @@
+-- отдельный скрипт: CREATE INDEX CONCURRENTLY выполняется вне транзакции
+CREATE INDEX CONCURRENTLY music_band_name_trgm_idx ON music_band USING gin (lower(name) gin_trgm_ops);
@@ -0,0 +1,2 @@
+-- подстрочный поиск по названию: lower(name) LIKE '%x%' (TrigramBandNameIndex); сам индекс - в V4_1
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
@@ -0,0 +1,5 @@
+-- pooled-генератор id (allocationSize = 50) вместо IDENTITY, чтобы Hibernate мог группировать INSERT в JDBC batch
+-- IDENTITY из V1 владеет неявной последовательностью music_band_id_seq: снимаем ее вместе с IDENTITY
+ALTER TABLE music_band ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE music_band_id_seq INCREMENT BY 50;
+SELECT setval('music_band_id_seq', (SELECT coalesce(max(id), 0) FROM music_band) + 50);
@@ -1,50 +0,0 @@
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Pink Floyd', -481, 884324, '2020-05-08 00:00:00', 3, 46, 10, 'PROGRESSIVE_ROCK', 8642297);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Yes', 602, 870140, '2020-02-11 00:00:00', 5, 14, 24, 'PROGRESSIVE_ROCK', 5008878);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Genesis', 985, -52797, '2022-04-30 00:00:00', 8, 39, 14, 'PROGRESSIVE_ROCK', 6634742);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'King Crimson', -462, 764561, '2021-04-27 00:00:00', 3, 25, 25, 'PROGRESSIVE_ROCK', 4374733);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Rush', -910, 125484, '2022-01-05 00:00:00', 6, 8, 12, 'PROGRESSIVE_ROCK', 5271488);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Dream Theater', 504, 787291, '2022-02-12 00:00:00', 5, 48, 12, 'PROGRESSIVE_ROCK', 4617867);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Tool', 391, -635286, '2020-08-12 00:00:00', 4, 34, 23, 'PROGRESSIVE_ROCK', 4649102);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Porcupine Tree', -190, -806169, '2024-04-18 00:00:00', 8, 38, 8, 'PROGRESSIVE_ROCK', 9463422);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Opeth', -703, 680663, '2020-01-31 00:00:00', 8, 45, 16, 'PROGRESSIVE_ROCK', 1920493);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Camel', -469, 647498, '2021-09-29 00:00:00', 8, 25, 12, 'PROGRESSIVE_ROCK', 9583580);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Jethro Tull', -825, -910256, '2022-06-13 00:00:00', 8, 19, 11, 'PROGRESSIVE_ROCK', 4204541);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Emerson Lake and Palmer', 153, 221212, '2021-02-08 00:00:00', 5, 36, 5, 'PROGRESSIVE_ROCK', 3930343);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Wu-Tang Clan', 806, 176558, '2024-04-14 00:00:00', 2, 68, 12, 'HIP_HOP', 11024899);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Public Enemy', 538, -967966, '2023-11-28 00:00:00', 10, 19, 14, 'HIP_HOP', 14016389);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'A Tribe Called Quest', 67, 48093, '2024-03-14 00:00:00', 2, 53, 11, 'HIP_HOP', 1555264);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Run-DMC', 577, 107161, '2025-04-09 00:00:00', 4, 47, 7, 'HIP_HOP', 14078342);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Beastie Boys', -182, 148624, '2020-05-29 00:00:00', 2, 70, 5, 'HIP_HOP', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'OutKast', -95, 858888, '2020-02-27 00:00:00', 5, 74, 8, 'HIP_HOP', 11317708);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'The Roots', -181, -913955, '2022-12-20 00:00:00', 5, 60, 4, 'HIP_HOP', 6521837);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Cypress Hill', 523, 144816, '2024-10-06 00:00:00', 7, 28, 6, 'HIP_HOP', 14622692);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'De La Soul', 377, -500983, '2024-11-29 00:00:00', 9, 10, 2, 'HIP_HOP', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Mobb Deep', 742, 179483, '2024-01-14 00:00:00', 8, 30, 3, 'HIP_HOP', 12543968);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Gang Starr', -465, -289674, '2024-09-08 00:00:00', 5, 72, 15, 'HIP_HOP', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Black Star', -606, -507283, '2022-12-23 00:00:00', 2, 45, 7, 'HIP_HOP', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Dilated Peoples', -849, 539123, '2023-08-28 00:00:00', 7, 31, 14, 'HIP_HOP', 7068965);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Jurassic 5', 429, -545035, '2024-07-20 00:00:00', 3, 43, 11, 'HIP_HOP', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'The Ramones', 495, -725572, '2023-09-26 00:00:00', 6, 14, 6, 'PUNK_ROCK', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'The Clash', -152, -78192, '2025-03-05 00:00:00', 4, 23, 15, 'PUNK_ROCK', 559328);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Sex Pistols', -513, -262495, '2020-06-11 00:00:00', 3, 43, 14, 'PUNK_ROCK', 2975551);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Dead Kennedys', -197, 194686, '2023-10-02 00:00:00', 4, 30, 6, 'PUNK_ROCK', 4491425);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Black Flag', 986, 533888, '2022-10-07 00:00:00', 4, 21, 11, 'PUNK_ROCK', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Bad Religion', 581, -60895, '2025-10-13 00:00:00', 3, 32, 19, 'PUNK_ROCK', 3063412);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'NOFX', 91, 222853, '2020-01-10 00:00:00', 6, 23, 2, 'PUNK_ROCK', 2535378);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Rancid', -425, -864169, '2025-09-30 00:00:00', 4, 53, 19, 'PUNK_ROCK', 5414836);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'The Offspring', -392, 816365, '2021-04-14 00:00:00', 6, 23, 19, 'PUNK_ROCK', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Green Day', 90, 569598, '2024-03-17 00:00:00', 6, 38, 3, 'PUNK_ROCK', 7174213);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Social Distortion', -610, 210244, '2023-01-21 00:00:00', 4, 50, 7, 'PUNK_ROCK', 3707165);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Pennywise', -797, 454290, '2022-03-08 00:00:00', 3, 51, 9, 'PUNK_ROCK', 6477820);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Descendents', 118, -126824, '2024-11-11 00:00:00', 5, 45, 19, 'PUNK_ROCK', 4582915);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Minor Threat', -788, -48248, '2021-01-22 00:00:00', 3, 49, 4, 'PUNK_ROCK', 6637344);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Fugazi', -510, 785894, '2023-05-01 00:00:00', 4, 35, 19, 'PUNK_ROCK', 596044);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Radiohead', 987, 124960, '2020-07-11 00:00:00', 6, 26, 20, 'PROGRESSIVE_ROCK', 2250694);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Kendrick Lamar', -826, -94515, '2023-05-04 00:00:00', 3, 53, 7, 'HIP_HOP', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Sum 41', -841, 402683, '2023-10-14 00:00:00', 7, 42, 10, 'PUNK_ROCK', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Jimi Hendrix Experience', 634, -207406, '2023-11-09 00:00:00', 4, 30, 8, 'PROGRESSIVE_ROCK', 7934684);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'N.W.A', 84, -252916, '2024-11-12 00:00:00', 2, 35, 11, 'HIP_HOP', 6550564);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'The Stooges', -987, -691617, '2020-11-22 00:00:00', 8, 7, 14, 'PUNK_ROCK', NULL);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Massive Attack', -844, -967315, '2022-08-30 00:00:00', 8, 35, 16, 'HIP_HOP', 3574340);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'AFI', -25, -67102, '2024-05-06 00:00:00', 6, 23, 2, 'PUNK_ROCK', 9712101);
-INSERT INTO music_band (name, x, y, creation_date, number_of_participants, singles_count, albums_count, genre, sales) VALUES ( 'Steven Wilson', 784, -230519, '2024-09-23 00:00:00', 8, 65, 4, 'PROGRESSIVE_ROCK', 9489166);
\ No newline at end of file
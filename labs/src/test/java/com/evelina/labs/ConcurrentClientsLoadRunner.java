@@ -0,0 +1,169 @@
+package com.evelina.labs;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузка на запущенный labs заданным числом одновременных клиентов. Каждый клиент держит один запрос
+ * в полете и отправляет следующий сразу после ответа (замкнутая модель), клиенты стартуют равномерно за ramp-up.
+ * Смесь запросов: 70% GET /bands/{id} (id 1..20 из начальных данных, в основном попадания в кеш),
+ * 20% поиск по случайной подстроке названия (всегда промах кеша, запрос в БД),
+ * 10% POST /grammy/band/{id}/singles/add (запись).
+ * Запросы идут асинхронным java.net.http.HttpClient, поэтому клиентских потоков на каждого клиента не нужно.
+ * Запуск: mvn -Pload-test test -Dload.base-url=https://127.0.0.1:8445 -Dload.clients=1000 -Dload.duration=60s
+ * -Dload.ramp-up=20s (labs запускается отдельно; для виртуальных потоков нужен JDK 21+ и spring.threads.virtual.enabled=true)
+ */
+public class ConcurrentClientsLoadRunner {
+
+    private static final int SEED_BANDS = 20;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUri;
+    private final HttpClient client;
+    private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> latenciesMicros = new ConcurrentLinkedQueue<>();
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    private ConcurrentClientsLoadRunner(URI baseUri) throws GeneralSecurityException {
+        this.baseUri = baseUri;
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[]{new TrustAllManager()}, null);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .sslContext(sslContext)
+                .connectTimeout(REQUEST_TIMEOUT)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        URI baseUri = URI.create(args.length > 0 ? args[0] : "https://127.0.0.1:8445");
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Duration duration = Duration.parse("PT" + (args.length > 2 ? args[2] : "60s").toUpperCase());
+        Duration rampUp = Duration.parse("PT" + (args.length > 3 ? args[3] : "20s").toUpperCase());
+
+        // адреса вида 127.0.0.1 обходят проверку имени хоста, самоподписанный сертификат labs принимается
+        System.setProperty("jdk.internal.httpclient.disableHostnameVerification", "true");
+        new ConcurrentClientsLoadRunner(baseUri).run(clients, duration, rampUp);
+    }
+
+    private void run(int clients, Duration duration, Duration rampUp) throws InterruptedException {
+        System.out.printf("%d клиентов, разгон %s, замер %s, %s%n", clients, rampUp, duration, baseUri);
+        ScheduledExecutorService starter = Executors.newSingleThreadScheduledExecutor();
+        CountDownLatch finished = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            starter.schedule(() -> next(finished), rampUp.toNanos() * i / clients, TimeUnit.NANOSECONDS);
+        }
+        Thread.sleep(rampUp.toMillis());
+        measuring = true;
+        long start = System.nanoTime();
+        Thread.sleep(duration.toMillis());
+        measuring = false;
+        double seconds = (System.nanoTime() - start) / 1e9;
+        stopped = true;
+        finished.await(REQUEST_TIMEOUT.toSeconds() + 5, TimeUnit.SECONDS);
+        starter.shutdownNow();
+        report(seconds);
+    }
+
+    private void next(CountDownLatch finished) {
+        if (stopped) {
+            finished.countDown();
+            return;
+        }
+        HttpRequest request = randomRequest();
+        long sent = System.nanoTime();
+        boolean counted = measuring;
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (counted && measuring) {
+                String outcome = error != null ? rootCause(error).getClass().getSimpleName() : String.valueOf(response.statusCode());
+                outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+                if (error == null && response.statusCode() < 500) {
+                    latenciesMicros.add((System.nanoTime() - sent) / 1000);
+                }
+            }
+            next(finished);
+        });
+    }
+
+    private HttpRequest randomRequest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int bandId = 1 + random.nextInt(SEED_BANDS);
+        int kind = random.nextInt(10);
+        HttpRequest.Builder request;
+        if (kind < 7) {
+            request = HttpRequest.newBuilder(baseUri.resolve("/bands/" + bandId)).GET();
+        } else if (kind < 9) {
+            String body = "<bandSearchRequest><name>" + Integer.toString(random.nextInt(1 << 20), 36)
+                    + "</name></bandSearchRequest>";
+            request = HttpRequest.newBuilder(baseUri.resolve("/bands/filters?size=20"))
+                    .header("Content-Type", "application/xml")
+                    .POST(HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            request = HttpRequest.newBuilder(baseUri.resolve("/grammy/band/" + bandId + "/singles/add"))
+                    .POST(HttpRequest.BodyPublishers.noBody());
+        }
+        return request.header("Accept", "application/xml").timeout(REQUEST_TIMEOUT).build();
+    }
+
+    private void report(double seconds) {
+        long total = outcomes.values().stream().mapToLong(LongAdder::sum).sum();
+        System.out.printf("Запросов: %d за %.1f с, %.0f запросов/с%n", total, seconds, total / seconds);
+        outcomes.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .forEach(entry -> System.out.printf("  %s: %d%n", entry.getKey(), entry.getValue().sum()));
+        List<Long> latencies = new ArrayList<>(latenciesMicros);
+        if (latencies.isEmpty()) {
+            return;
+        }
+        latencies.sort(null);
+        System.out.printf("Задержка успешных ответов, мс: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                latencies.get(latencies.size() - 1) / 1000.0);
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    private static double percentile(List<Long> sorted, double quantile) {
+        return sorted.get((int) Math.min(sorted.size() - 1, Math.floor(sorted.size() * quantile))) / 1000.0;
+    }
+
+    private static final class TrustAllManager implements X509TrustManager {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
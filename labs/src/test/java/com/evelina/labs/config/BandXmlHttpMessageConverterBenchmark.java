@@ -0,0 +1,119 @@
+package com.evelina.labs.config;
+
+import com.evelina.labs.dto.BandSearchResponse;
+import com.evelina.labs.models.Coordinates;
+import com.evelina.labs.models.Label;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.models.MusicGenre;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.xml.MappingJackson2XmlHttpMessageConverter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись страницы поиска в XML: StAX-конвертер против прежнего Jackson XML с настройками Spring Boot.
+ * Вывод считается и отбрасывается, чтобы в замер не попадал рост буфера ответа.
+ * Побайтное совпадение вывода проверяет BandXmlHttpMessageConverterTest.
+ * Запуск: mvn -Pbenchmark test -Djmh.include=BandXmlHttpMessageConverter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BandXmlHttpMessageConverterBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    private BandSearchResponse page;
+    private BandXmlHttpMessageConverter stax;
+    private MappingJackson2XmlHttpMessageConverter jackson;
+
+    @Setup
+    public void setUp() {
+        stax = new BandXmlHttpMessageConverter();
+        jackson = new MappingJackson2XmlHttpMessageConverter(
+                Jackson2ObjectMapperBuilder.xml().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+
+        List<MusicBand> bands = new ArrayList<>();
+        for (int i = 1; i <= pageSize; i++) {
+            bands.add(MusicBand.builder().id(i).name("Band " + i).coordinates(new Coordinates(i % 1000, i * 31L))
+                    .creationDate(LocalDateTime.of(2020, 1, 1, 0, 0).plusMinutes(i)).numberOfParticipants(1L + i % 10)
+                    .singlesCount(i % 7 == 0 ? null : 1L + i % 50).albumsCount(1 + i % 20)
+                    .genre(MusicGenre.values()[i % MusicGenre.values().length])
+                    .label(i % 5 == 0 ? null : new Label(1000L * i)).build());
+        }
+        page = new BandSearchResponse();
+        page.setPage(1);
+        page.setSize(pageSize);
+        page.setTotalPages(10);
+        page.setTotalCount(10L * pageSize);
+        page.setHasNext(true);
+        page.setBands(bands);
+    }
+
+    @Benchmark
+    public long staxConverter() throws IOException {
+        return write(stax);
+    }
+
+    @Benchmark
+    public long jacksonXmlConverter() throws IOException {
+        return write(jackson);
+    }
+
+    private long write(HttpMessageConverter<Object> converter) throws IOException {
+        CountingOutputMessage message = new CountingOutputMessage();
+        converter.write(page, MediaType.APPLICATION_XML, message);
+        return message.written;
+    }
+
+    private static final class CountingOutputMessage extends OutputStream implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private long written;
+
+        @Override
+        public OutputStream getBody() {
+            return this;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public void write(int b) {
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written += len;
+        }
+    }
+}
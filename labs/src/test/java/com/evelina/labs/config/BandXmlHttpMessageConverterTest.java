@@ -0,0 +1,111 @@
+package com.evelina.labs.config;
+
+import com.evelina.labs.dto.BandSearchResponse;
+import com.evelina.labs.dto.MusicBandView;
+import com.evelina.labs.models.Coordinates;
+import com.evelina.labs.models.Label;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.models.MusicGenre;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.xml.MappingJackson2XmlHttpMessageConverter;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ответы StAX-конвертера должны совпадать побайтно с тем, что писал Jackson XML с настройками Spring Boot.
+ */
+class BandXmlHttpMessageConverterTest {
+
+    private static final String GOLDEN_PAGE = "<BandSearchResponse><pagination><page>1</page><totalPages>3</totalPages>"
+            + "<totalCount>21</totalCount><size>10</size><hasNext>true</hasNext><nextCursor/></pagination>"
+            + "<bands><bands><id>1</id><name>Pink Floyd</name><coordinates><x>-481</x><y>884324</y></coordinates>"
+            + "<creationDate>2020-05-08T00:00:00</creationDate><numberOfParticipants>3</numberOfParticipants>"
+            + "<singlesCount>46</singlesCount><albumsCount>10</albumsCount><genre>PROGRESSIVE_ROCK</genre>"
+            + "<label><sales>8642297</sales></label></bands>"
+            + "<bands><id>2</id><name>Tom &amp; Jerry &lt;\"Live\"> Кино</name>"
+            + "<coordinates><x>0</x><y>0</y></coordinates><creationDate>2021-01-02T03:04:05.123456</creationDate>"
+            + "<numberOfParticipants>1</numberOfParticipants><singlesCount/><albumsCount/><genre>PUNK_ROCK</genre>"
+            + "<label/></bands></bands></BandSearchResponse>";
+
+    private final BandXmlHttpMessageConverter converter = new BandXmlHttpMessageConverter();
+    private final MappingJackson2XmlHttpMessageConverter jackson = new MappingJackson2XmlHttpMessageConverter(
+            Jackson2ObjectMapperBuilder.xml().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build());
+
+    @Test
+    void pageMatchesGoldenOutput() throws IOException {
+        BandSearchResponse page = page(List.of(fullBand(), sparseBand()));
+
+        assertThat(write(converter, page)).isEqualTo(GOLDEN_PAGE);
+        assertThat(write(jackson, page)).isEqualTo(GOLDEN_PAGE);
+    }
+
+    @Test
+    void singleBandMatchesJackson() throws IOException {
+        assertSameBytes(fullBand());
+        assertSameBytes(sparseBand());
+    }
+
+    @Test
+    void cursorAndEmptyPagesMatchJackson() throws IOException {
+        BandSearchResponse cursorPage = new BandSearchResponse();
+        cursorPage.setSize(10);
+        cursorPage.setHasNext(true);
+        cursorPage.setNextCursor("bmFtZTpQaW5rIEZsb3lkOjE");
+        cursorPage.setBands(List.of(fullBand()));
+        assertSameBytes(cursorPage);
+
+        assertSameBytes(page(List.of()));
+        assertSameBytes(new BandSearchResponse());
+    }
+
+    @Test
+    void projectionMatchesJackson() throws IOException {
+        MusicBandView idAndName = MusicBandView.of(sparseBand(), Set.of("id", "name"));
+        MusicBandView withNested = MusicBandView.of(fullBand(), Set.of("id", "coordinates", "creationDate", "label", "genre"));
+
+        assertSameBytes(page(List.of(idAndName, withNested)));
+    }
+
+    private void assertSameBytes(Object body) throws IOException {
+        assertThat(write(converter, body)).isEqualTo(write(jackson, body));
+    }
+
+    private static String write(HttpMessageConverter<Object> converter, Object body) throws IOException {
+        MockHttpOutputMessage message = new MockHttpOutputMessage();
+        converter.write(body, MediaType.APPLICATION_XML, message);
+        return message.getBodyAsString();
+    }
+
+    private static BandSearchResponse page(List<?> bands) {
+        BandSearchResponse response = new BandSearchResponse();
+        response.setPage(1);
+        response.setSize(10);
+        response.setTotalPages(3);
+        response.setTotalCount(21L);
+        response.setHasNext(true);
+        response.setBands(bands);
+        return response;
+    }
+
+    private static MusicBand fullBand() {
+        return MusicBand.builder().id(1).name("Pink Floyd").coordinates(new Coordinates(-481, 884324))
+                .creationDate(LocalDateTime.of(2020, 5, 8, 0, 0)).numberOfParticipants(3L).singlesCount(46L)
+                .albumsCount(10).genre(MusicGenre.PROGRESSIVE_ROCK).label(new Label(8642297)).version(7L).build();
+    }
+
+    private static MusicBand sparseBand() {
+        return MusicBand.builder().id(2).name("Tom & Jerry <\"Live\"> Кино").coordinates(new Coordinates(0, 0))
+                .creationDate(LocalDateTime.of(2021, 1, 2, 3, 4, 5, 123456000)).numberOfParticipants(1L)
+                .genre(MusicGenre.PUNK_ROCK).build();
+    }
+}
@@ -0,0 +1,160 @@
+package com.evelina.labs.controller;
+
+import com.evelina.labs.LabsApplication;
+import com.evelina.labs.models.MusicGenre;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Байты и задержка одной страницы POST /bands/filters через TLS: HTTP/1.1 и h2, без сжатия и с gzip
+ * (настройки server.compression.* и server.http2.enabled из application.properties).
+ * Клиент распаковывает gzip сам, поэтому распаковка входит в задержку. Кеш результатов поиска включен,
+ * чтобы замер касался сериализации и передачи, а не БД. Размер тела на проводе печатается в конце прогона.
+ * Запуск: mvn -Pbenchmark test -Djmh.include=SearchPageTransfer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 15, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchPageTransferBenchmark {
+
+    private static final int BANDS = 2000;
+
+    @Param({"HTTP_1_1", "HTTP_2"})
+    private HttpClient.Version version;
+
+    @Param({"identity", "gzip"})
+    private String encoding;
+
+    @Param({"10", "100"})
+    private int pageSize;
+
+    private Path keyStoreDir;
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+    private long wireBytes;
+    private long responses;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException, GeneralSecurityException {
+        keyStoreDir = Files.createTempDirectory("labs-bench");
+        Path keyStore = keyStoreDir.resolve("bench.p12");
+        Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+                "-genkeypair", "-alias", "bench", "-keyalg", "RSA", "-keysize", "2048", "-validity", "1",
+                "-dname", "CN=localhost", "-ext", "SAN=dns:localhost", "-storetype", "PKCS12", "-keystore", keyStore.toString(),
+                "-storepass", "123456").inheritIO().start();
+        if (keytool.waitFor() != 0) {
+            throw new IllegalStateException("keytool завершился с кодом " + keytool.exitValue());
+        }
+
+        context = new SpringApplicationBuilder(LabsApplication.class).run(
+                "--spring.datasource.url=jdbc:h2:mem:transfer;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--server.port=0",
+                "--server.ssl.key-store=" + keyStore.toUri(),
+                "--server.ssl.key-alias=bench",
+                "--logging.level.root=WARN");
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp created = Timestamp.valueOf(LocalDateTime.of(2020, 1, 1, 0, 0));
+        for (int i = 0; i < BANDS; i++) {
+            rows.add(new Object[]{"Band " + i, i % 1000, (long) i * 31, created, 1 + i % 10, 1 + i % 50L, 1 + i % 20,
+                    MusicGenre.values()[i % MusicGenre.values().length].name(), 1000L * i});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate("INSERT INTO music_band (name, x, y, creation_date, "
+                + "number_of_participants, singles_count, albums_count, genre, sales) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        SSLContext sslContext = SSLContext.getInstance("TLS");
+        sslContext.init(null, new TrustManager[]{new TrustAllManager()}, null);
+        client = HttpClient.newBuilder().version(version).sslContext(sslContext).build();
+        request = HttpRequest.newBuilder(URI.create("https://localhost:" + port + "/bands/filters?page=2&size=" + pageSize))
+                .header("Content-Type", "application/xml")
+                .header("Accept", "application/xml")
+                .header("Accept-Encoding", encoding)
+                .POST(HttpRequest.BodyPublishers.ofString("<bandSearchRequest/>"))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.printf("%n%s %s size=%d: %d байт тела на проводе на страницу%n",
+                version, encoding, pageSize, responses == 0 ? 0 : wireBytes / responses);
+        context.close();
+        try (var files = Files.walk(keyStoreDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public byte[] searchPage() throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200 || response.version() != version) {
+            throw new IllegalStateException("Ответ " + response.statusCode() + " по " + response.version());
+        }
+        wireBytes += response.body().length;
+        responses++;
+        if (response.headers().firstValue("Content-Encoding").filter("gzip"::equals).isEmpty()) {
+            return response.body();
+        }
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            return gzip.readAllBytes();
+        }
+    }
+
+    private static final class TrustAllManager implements X509TrustManager {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
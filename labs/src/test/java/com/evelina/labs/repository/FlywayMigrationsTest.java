@@ -0,0 +1,65 @@
+package com.evelina.labs.repository;
+
+import com.evelina.labs.models.Coordinates;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.models.MusicGenre;
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Миграции common и h2 на H2 в режиме PostgreSQL: схема после Flyway должна проходить
+ * ddl-auto=validate для сущностей, а id новых групп - браться из music_band_id_seq без пересечения с начальными данными.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:flyway;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class FlywayMigrationsTest {
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MusicBandRepository musicBandRepository;
+
+    @Test
+    void appliesCommonAndH2Migrations() {
+        assertThat(Arrays.stream(flyway.info().applied()).map(MigrationInfo::getVersion).map(Object::toString))
+                .containsExactly("1", "2", "5", "6", "7");
+        assertThat(flyway.info().pending()).isEmpty();
+    }
+
+    @Test
+    void seedsBandsWithInitialVersion() {
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM music_band", Long.class)).isEqualTo(50);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM music_band WHERE version <> 0", Long.class)).isZero();
+    }
+
+    @Test
+    void insertsAfterSeedRowsAndIncrementsVersion() {
+        MusicBand band = musicBandRepository.saveAndFlush(MusicBand.builder().name("Nautilus Pompilius")
+                .coordinates(new Coordinates(1, 2L)).numberOfParticipants(5L).genre(MusicGenre.PROGRESSIVE_ROCK).build());
+
+        assertThat(band.getId()).isGreaterThan(50);
+        assertThat(band.getVersion()).isZero();
+
+        band.setSinglesCount(3L);
+        assertThat(musicBandRepository.saveAndFlush(band).getVersion()).isEqualTo(1);
+    }
+}
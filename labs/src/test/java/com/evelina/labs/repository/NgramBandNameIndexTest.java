@@ -0,0 +1,98 @@
+package com.evelina.labs.repository;
+
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.models.MusicBand;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class NgramBandNameIndexTest {
+
+    private final MusicBandRepository musicBandRepository = mock(MusicBandRepository.class);
+    private final NgramBandNameIndex index = new NgramBandNameIndex(musicBandRepository);
+
+    @Test
+    void intersectsTrigramsOfSubstring() {
+        build(row(1, "Pink Floyd"), row(2, "Pink Martini"), row(3, "Floyd Cramer"), row(4, "Кино"));
+
+        assertThat(index.candidates("pink")).containsExactlyInAnyOrder(1, 2);
+        assertThat(index.candidates("floyd")).containsExactlyInAnyOrder(1, 3);
+        assertThat(index.candidates("k floyd")).containsExactly(1);
+        assertThat(index.candidates("кино")).containsExactly(4);
+        assertThat(index.candidates("queen")).isEmpty();
+    }
+
+    @Test
+    void keepsFalsePositivesForLikeToFilter() {
+        build(row(1, "abcxbcd"));
+
+        // обе триграммы "abcd" есть в названии, самой подстроки нет - ее отсекает LIKE
+        assertThat(index.candidates("abcd")).containsExactly(1);
+    }
+
+    @Test
+    void doesNotNarrowShortSubstrings() {
+        build(row(1, "Pink Floyd"), row(2, "ABBA"));
+
+        assertThat(index.candidates("ab")).isNull();
+        assertThat(index.candidates("k")).isNull();
+        assertThat(index.candidates("")).isNull();
+    }
+
+    @Test
+    void doesNotNarrowBeforeBuild() {
+        index.onBandChanged(MusicBandChangedEvent.saved(band(1, "Pink Floyd")));
+
+        assertThat(index.candidates("pink")).isNull();
+    }
+
+    @Test
+    void followsChangesAfterBuild() {
+        build(row(1, "Pink Floyd"), row(2, "Queen"));
+
+        index.onBandChanged(MusicBandChangedEvent.saved(band(1, "Deep Purple")));
+        index.onBandChanged(MusicBandChangedEvent.deleted(2));
+        index.onBandChanged(MusicBandChangedEvent.singlesAdded(1, 1, 5, 3));
+
+        assertThat(index.candidates("pink")).isEmpty();
+        assertThat(index.candidates("purple")).containsExactly(1);
+        assertThat(index.candidates("queen")).isEmpty();
+    }
+
+    @Test
+    void replaysChangesReceivedDuringBuild() {
+        // снимок прочитан до изменений, события о которых пришли, пока индекс строился
+        List<Object[]> snapshot = new ArrayList<>(List.of(row(1, "Pink Floyd"), row(2, "Queen")));
+        when(musicBandRepository.findAllIdsAndNames()).thenAnswer(invocation -> {
+            index.onBandChanged(MusicBandChangedEvent.saved(band(1, "Deep Purple")));
+            index.onBandChanged(MusicBandChangedEvent.deleted(2));
+            index.onBandChanged(MusicBandChangedEvent.saved(band(3, "Nautilus Pompilius")));
+            return snapshot;
+        });
+
+        index.build();
+
+        assertThat(index.candidates("pink")).isEmpty();
+        assertThat(index.candidates("purple")).containsExactly(1);
+        assertThat(index.candidates("queen")).isEmpty();
+        assertThat(index.candidates("nautilus")).containsExactly(3);
+    }
+
+    private void build(Object[]... rows) {
+        when(musicBandRepository.findAllIdsAndNames()).thenReturn(List.of(rows));
+        index.build();
+    }
+
+    private static Object[] row(int id, String name) {
+        return new Object[]{id, name};
+    }
+
+    private static MusicBand band(int id, String name) {
+        return MusicBand.builder().id(id).name(name).version(1L).build();
+    }
+}
@@ -0,0 +1,203 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.exception.InvalidParameterException;
+import com.evelina.labs.exception.RequestInProgressException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+    private final AtomicInteger runs = new AtomicInteger();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void replaysCompletedOperation() {
+        IdempotencyService service = service(Duration.ofHours(1), Duration.ofSeconds(1), false);
+
+        assertThat(service.execute("key", "add:1", runs::incrementAndGet)).isTrue();
+        assertThat(service.execute("key", "add:1", runs::incrementAndGet)).isFalse();
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void rejectsKeyReusedForOtherRequest() {
+        IdempotencyService service = service(Duration.ofHours(1), Duration.ofSeconds(1), false);
+        service.execute("key", "add:1", runs::incrementAndGet);
+
+        assertThatThrownBy(() -> service.execute("key", "remove:1", runs::incrementAndGet))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void replayWaitsForOperationInFlight() throws Exception {
+        IdempotencyService service = service(Duration.ofHours(1), Duration.ofSeconds(5), false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Boolean> first = executor.submit(() -> service.execute("key", "add:1", () -> {
+            started.countDown();
+            await(release);
+            runs.incrementAndGet();
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Thread releaser = new Thread(() -> {
+            sleep(100);
+            release.countDown();
+        });
+        releaser.start();
+
+        assertThat(service.execute("key", "add:1", runs::incrementAndGet)).isFalse();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void answersConflictWhenOperationInFlightOutlastsWait() throws Exception {
+        IdempotencyService service = service(Duration.ofHours(1), Duration.ofMillis(50), false);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Boolean> first = executor.submit(() -> service.execute("key", "add:1", () -> {
+            started.countDown();
+            await(release);
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> service.execute("key", "add:1", runs::incrementAndGet))
+                .isInstanceOf(RequestInProgressException.class);
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(service.execute("key", "add:1", runs::incrementAndGet)).isFalse();
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void forgetsFailedOperation() {
+        IdempotencyService service = service(Duration.ofHours(1), Duration.ofSeconds(1), false);
+
+        assertThatThrownBy(() -> service.execute("key", "add:1", () -> {
+            throw new DataAccessResourceFailureException("down");
+        })).isInstanceOf(DataAccessResourceFailureException.class);
+
+        assertThat(service.execute("key", "add:1", runs::incrementAndGet)).isTrue();
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void executesAgainAfterTtl() {
+        IdempotencyService service = service(Duration.ZERO, Duration.ofSeconds(1), false);
+
+        assertThat(service.execute("key", "add:1", runs::incrementAndGet)).isTrue();
+        assertThat(service.execute("key", "remove:1", runs::incrementAndGet)).isTrue();
+        assertThat(runs).hasValue(2);
+    }
+
+    @Test
+    void rejectsMalformedKey() {
+        IdempotencyService service = service(Duration.ofHours(1), Duration.ofSeconds(1), false);
+
+        assertThatThrownBy(() -> service.execute(" ", "add:1", runs::incrementAndGet))
+                .isInstanceOf(InvalidParameterException.class);
+        assertThatThrownBy(() -> service.execute("k".repeat(256), "add:1", runs::incrementAndGet))
+                .isInstanceOf(InvalidParameterException.class);
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void persistentKeyStoredByOtherNodeIsReplay() {
+        IdempotencyService service = service(Duration.ofHours(1), Duration.ofSeconds(1), true);
+        when(jdbcTemplate.queryForList(startsWith("SELECT"), eq(String.class), eq("key"), any()))
+                .thenReturn(List.of("add:1"));
+
+        assertThat(service.execute("key", "add:1", runs::incrementAndGet)).isFalse();
+        assertThatThrownBy(() -> service(Duration.ofHours(1), Duration.ofSeconds(1), true)
+                .execute("key", "remove:1", runs::incrementAndGet)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void persistentDuplicateKeyIsReplayOnlyForSameRequest() {
+        // другой узел вставил ключ между SELECT и INSERT этого узла
+        when(jdbcTemplate.queryForList(startsWith("SELECT"), eq(String.class), eq("key"), any()))
+                .thenReturn(List.of(), List.of("add:1"), List.of(), List.of("add:1"));
+        when(jdbcTemplate.update(startsWith("INSERT"), anyString(), anyString(), any()))
+                .thenThrow(new DuplicateKeyException("idempotency_key_pkey"));
+
+        assertThat(service(Duration.ofHours(1), Duration.ofSeconds(1), true)
+                .execute("key", "add:1", runs::incrementAndGet)).isFalse();
+        assertThatThrownBy(() -> service(Duration.ofHours(1), Duration.ofSeconds(1), true)
+                .execute("key", "remove:1", runs::incrementAndGet)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(runs).hasValue(0);
+    }
+
+    @Test
+    void persistentDuplicateKeyWithoutStoredRowAsksToRetry() {
+        when(jdbcTemplate.queryForList(startsWith("SELECT"), eq(String.class), eq("key"), any())).thenReturn(List.of());
+        when(jdbcTemplate.update(startsWith("INSERT"), anyString(), anyString(), any()))
+                .thenThrow(new DuplicateKeyException("idempotency_key_pkey"));
+
+        assertThatThrownBy(() -> service(Duration.ofHours(1), Duration.ofSeconds(1), true)
+                .execute("key", "add:1", runs::incrementAndGet)).isInstanceOf(RequestInProgressException.class);
+    }
+
+    @Test
+    void refusesPersistentKeysWithWriteBehind() {
+        SinglesWriteBehindBuffer buffer = mock(SinglesWriteBehindBuffer.class);
+        when(buffer.isEnabled()).thenReturn(true);
+
+        assertThatThrownBy(() -> new IdempotencyService(jdbcTemplate, transactionTemplate, Duration.ofHours(1), 100,
+                Duration.ofSeconds(1), true, buffer)).isInstanceOf(IllegalStateException.class);
+    }
+
+    private IdempotencyService service(Duration ttl, Duration waitTimeout, boolean persistent) {
+        return new IdempotencyService(jdbcTemplate, transactionTemplate, ttl, 100, waitTimeout, persistent,
+                mock(SinglesWriteBehindBuffer.class));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.LabsApplication;
+import com.evelina.labs.dto.BandSearchRequest;
+import com.evelina.labs.dto.CountMode;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.models.MusicGenre;
+import com.evelina.labs.repository.BandNameIndex;
+import com.evelina.labs.repository.MusicBandRepository;
+import com.evelina.labs.repository.MusicBandSpecification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Выделение памяти на один поиск по фильтрам (страница из 100 групп и точный count) на H2 в памяти:
+ * - readOnlyTransaction - текущий путь MusicBandService, одна read-only транзакция (FlushMode.MANUAL,
+ *   сущности без снимков для dirty checking);
+ * - readWriteTransaction - тот же поиск внутри обычной транзакции, как выполнялись чтения внутри изменений;
+ * - repositoryTransactions - прежний путь без границ в сервисе: выборка и count в отдельных транзакциях репозитория.
+ * Кеши групп и результатов поиска выключены, чтобы каждый вызов доходил до БД.
+ * Запуск: mvn -Pbenchmark test -Djmh.include=MusicBandSearchAllocation, байты на поиск - строка gc.alloc.rate.norm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MusicBandSearchAllocationBenchmark {
+
+    private static final int BANDS = 5000;
+
+    private ConfigurableApplicationContext context;
+    private MusicBandService musicBandService;
+    private MusicBandRepository musicBandRepository;
+    private BandNameIndex bandNameIndex;
+    private TransactionTemplate transactionTemplate;
+    private BandSearchRequest request;
+    private Pageable pageable;
+
+    @Setup
+    public void setUp() {
+        // аргументы командной строки, а не properties(): те задают только значения по умолчанию под application.properties
+        context = new SpringApplicationBuilder(LabsApplication.class).run(
+                "--spring.datasource.url=jdbc:h2:mem:bench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--server.ssl.enabled=false",
+                "--server.port=0",
+                "--bands.cache.enabled=false",
+                "--bands.search-cache.enabled=false",
+                "--logging.level.root=WARN");
+        musicBandService = context.getBean(MusicBandService.class);
+        musicBandRepository = context.getBean(MusicBandRepository.class);
+        bandNameIndex = context.getBean(BandNameIndex.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        List<Object[]> rows = new ArrayList<>();
+        Timestamp created = Timestamp.valueOf(LocalDateTime.of(2020, 1, 1, 0, 0));
+        for (int i = 0; i < BANDS; i++) {
+            rows.add(new Object[]{"Band " + i, i % 1000, (long) i, created, 1 + i % 10, 1 + i % 50L, 1 + i % 20,
+                    MusicGenre.values()[i % MusicGenre.values().length].name(), 1000L * i});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate("INSERT INTO music_band (name, x, y, creation_date, "
+                + "number_of_participants, singles_count, albums_count, genre, sales) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+
+        request = new BandSearchRequest();
+        request.setGenre(MusicGenre.PUNK_ROCK);
+        pageable = PageRequest.of(3, 100);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Slice<MusicBand> readOnlyTransaction() {
+        return musicBandService.getBandsWithFilterAndPagination(request, pageable, CountMode.EXACT, null);
+    }
+
+    @Benchmark
+    public Slice<MusicBand> readWriteTransaction() {
+        // внутренняя read-only транзакция сервиса присоединяется к внешней и не меняет ее режим
+        return transactionTemplate.execute(status ->
+                musicBandService.getBandsWithFilterAndPagination(request, pageable, CountMode.EXACT, null));
+    }
+
+    @Benchmark
+    public Slice<MusicBand> repositoryTransactions() {
+        return musicBandRepository.findAll(MusicBandSpecification.searchByCriteria(request, bandNameIndex), pageable);
+    }
+}
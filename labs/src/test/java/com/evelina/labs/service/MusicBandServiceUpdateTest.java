@@ -0,0 +1,162 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.dto.MusicBandRequest;
+import com.evelina.labs.exception.PreconditionFailedException;
+import com.evelina.labs.models.Coordinates;
+import com.evelina.labs.models.Label;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.models.MusicGenre;
+import com.evelina.labs.repository.BandNameIndex;
+import com.evelina.labs.repository.MusicBandRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * PUT /bands/{id} с If-Match при отложенной записи синглов: ETag, полученный при GET, должен совпадать,
+ * пока представление группы не изменилось, даже если приращения еще не записаны или уже записаны после GET.
+ */
+class MusicBandServiceUpdateTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final MusicBandRepository musicBandRepository = mock(MusicBandRepository.class);
+    private final SinglesWriteBehindBuffer buffer = new SinglesWriteBehindBuffer(jdbcTemplate,
+            new TransactionTemplate(transactionManager), mock(ApplicationEventPublisher.class), true, 100);
+    private final MusicBandService service = new MusicBandService(musicBandRepository, mock(BandCountEstimator.class),
+            mock(BandNameIndex.class), mock(SinglesCountHistogram.class), buffer, mock(MusicBandCache.class),
+            mock(MusicBandSearchCache.class), mock(ApplicationEventPublisher.class), transactionManager,
+            new SimpleMeterRegistry());
+
+    private MusicBand row;
+
+    @BeforeEach
+    void setUp() {
+        row = band(5L, 3L);
+        when(musicBandRepository.findById(1)).thenAnswer(invocation -> Optional.of(row.toBuilder().build()));
+        when(musicBandRepository.saveAndFlush(any(MusicBand.class))).thenAnswer(invocation -> {
+            MusicBand saved = invocation.getArgument(0);
+            saved.setVersion(saved.getVersion() + 1);
+            return saved;
+        });
+    }
+
+    @Test
+    void acceptsETagWithPendingSinglesWithoutWritingThemFirst() {
+        buffer.add(1, 2);
+        MusicBandService.Revision seen = revisionOf(buffer.withPending(row));
+
+        MusicBand saved = service.updateMusicBand(1, request(10L), List.of(seen));
+
+        assertThat(saved.getSinglesCount()).isEqualTo(10);
+        assertThat(saved.getVersion()).isEqualTo(4);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        // приращения, которые видел клиент, вошли в значение из PUT и не прибавятся к нему
+        assertThat(buffer.withPending(saved).getSinglesCount()).isEqualTo(10);
+    }
+
+    @Test
+    void acceptsETagWhenSinglesWereWrittenAfterGet() {
+        buffer.add(1, 2);
+        MusicBandService.Revision seen = revisionOf(buffer.withPending(row));
+        returnWrittenRow(7L, 4L);
+        buffer.flush();
+        row = band(7L, 4L);
+
+        MusicBand saved = service.updateMusicBand(1, request(10L), List.of(seen));
+
+        assertThat(saved.getSinglesCount()).isEqualTo(10);
+        assertThat(saved.getVersion()).isEqualTo(5);
+    }
+
+    @Test
+    void rejectsETagWhenSinglesWereAddedAfterGet() {
+        buffer.add(1, 2);
+        MusicBandService.Revision seen = revisionOf(buffer.withPending(row));
+        buffer.add(1, 1);
+
+        assertThatThrownBy(() -> service.updateMusicBand(1, request(10L), List.of(seen)))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThat(buffer.withPending(row).getSinglesCount()).isEqualTo(8);
+    }
+
+    @Test
+    void rejectsETagWhenRowWasChangedOtherwise() {
+        MusicBandService.Revision seen = revisionOf(row);
+        row = band(5L, 4L);
+
+        assertThatThrownBy(() -> service.updateMusicBand(1, request(10L), List.of(seen)))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+
+    @Test
+    void updatesCurrentRowWithoutIfMatch() {
+        buffer.add(1, 2);
+
+        MusicBand saved = service.updateMusicBand(1, request(10L), null);
+
+        assertThat(saved.getSinglesCount()).isEqualTo(10);
+        assertThat(buffer.withPending(saved).getSinglesCount()).isEqualTo(10);
+    }
+
+    @Test
+    void keepsSinglesAddedDuringUpdate() {
+        buffer.add(1, 2);
+        MusicBandService.Revision seen = revisionOf(buffer.withPending(row));
+        doAnswer(invocation -> {
+            buffer.add(1, 1);
+            return null;
+        }).when(transactionManager).commit(any());
+
+        MusicBand saved = service.updateMusicBand(1, request(10L), List.of(seen));
+
+        assertThat(buffer.withPending(saved).getSinglesCount()).isEqualTo(11);
+    }
+
+    private void returnWrittenRow(long singlesCount, long version) {
+        doAnswer(invocation -> {
+            ResultSet written = mock(ResultSet.class);
+            when(written.getInt(1)).thenReturn(1);
+            when(written.getLong(2)).thenReturn(singlesCount);
+            when(written.getLong(3)).thenReturn(version);
+            invocation.<RowCallbackHandler>getArgument(1).processRow(written);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+    }
+
+    private static MusicBandService.Revision revisionOf(MusicBand band) {
+        return new MusicBandService.Revision(band.getVersion(), band.getSinglesCount());
+    }
+
+    private static MusicBandRequest request(Long singlesCount) {
+        return new MusicBandRequest("Pink Floyd", new Coordinates(1, 2L), 4L, singlesCount, 15,
+                MusicGenre.PROGRESSIVE_ROCK, new Label(100L));
+    }
+
+    private static MusicBand band(Long singlesCount, Long version) {
+        return MusicBand.builder().id(1).name("Pink Floyd").coordinates(new Coordinates(1, 2L)).numberOfParticipants(4L)
+                .singlesCount(singlesCount).albumsCount(15).genre(MusicGenre.PROGRESSIVE_ROCK).label(new Label(100L))
+                .version(version).build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.models.MusicBand;
+import com.evelina.labs.repository.MusicBandRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SinglesCountHistogramTest {
+
+    private final MusicBandRepository repository = mock(MusicBandRepository.class);
+    private final SinglesCountHistogram histogram =
+            new SinglesCountHistogram(repository, mock(PlatformTransactionManager.class), true);
+
+    @Test
+    void buildsFromSnapshot() {
+        when(repository.streamSinglesCounts()).thenReturn(rows(
+                row(1, 3L, 0L), row(2, 3L, 4L), row(3, null, 1L), row(5000, 10L, 2L)));
+
+        histogram.reconcile();
+
+        assertThat(histogram.countEqual(3)).isEqualTo(2);
+        assertThat(histogram.countGreaterThan(0)).isEqualTo(3);
+        assertThat(histogram.countGreaterThan(3)).isEqualTo(1);
+    }
+
+    @Test
+    void eventsCommittedBeforeSnapshotAreNotCountedTwice() {
+        // событие пришло во время перестроения, но строка в снимке уже с этой версией
+        when(repository.streamSinglesCounts()).thenAnswer(invocation -> {
+            histogram.onBandChanged(MusicBandChangedEvent.singlesAdded(1, 1, 4L, 5L));
+            histogram.onBandChanged(MusicBandChangedEvent.singlesAdded(2, 1, 8L, 3L));
+            return rows(row(1, 4L, 5L), row(2, 7L, 2L));
+        });
+
+        histogram.reconcile();
+
+        assertThat(histogram.countEqual(4)).isEqualTo(1);
+        assertThat(histogram.countEqual(5)).isZero();
+        assertThat(histogram.countEqual(7)).isZero();
+        assertThat(histogram.countEqual(8)).isEqualTo(1);
+    }
+
+    @Test
+    void staleAndRepeatedEventsAreIgnored() {
+        when(repository.streamSinglesCounts()).thenReturn(rows(row(1, 2L, 0L)));
+        histogram.reconcile();
+
+        MusicBandChangedEvent added = MusicBandChangedEvent.singlesAdded(1, 1, 3L, 1L);
+        histogram.onBandChanged(added);
+        histogram.onBandChanged(added);
+        histogram.onBandChanged(MusicBandChangedEvent.singlesAdded(1, 1, 2L, 0L));
+
+        assertThat(histogram.countEqual(3)).isEqualTo(1);
+        assertThat(histogram.countGreaterThan(0)).isEqualTo(1);
+    }
+
+    @Test
+    void deletedBandIgnoresLateEvents() {
+        when(repository.streamSinglesCounts()).thenReturn(rows(row(1, 2L, 0L)));
+        histogram.reconcile();
+
+        histogram.onBandChanged(MusicBandChangedEvent.deleted(1));
+        histogram.onBandChanged(MusicBandChangedEvent.singlesAdded(1, 1, 3L, 1L));
+        histogram.onBandChanged(MusicBandChangedEvent.saved(MusicBand.builder().id(7).singlesCount(2L).version(0L).build()));
+
+        assertThat(histogram.countEqual(2)).isEqualTo(1);
+        assertThat(histogram.countEqual(3)).isZero();
+        assertThat(histogram.countGreaterThan(0)).isEqualTo(1);
+    }
+
+    private static Stream<Object[]> rows(Object[]... rows) {
+        return Arrays.stream(rows);
+    }
+
+    private static Object[] row(Integer id, Long singlesCount, Long version) {
+        return new Object[]{id, singlesCount, version};
+    }
+}
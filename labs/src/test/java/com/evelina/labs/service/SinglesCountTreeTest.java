@@ -0,0 +1,116 @@
+package com.evelina.labs.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SinglesCountTreeTest {
+
+    @Test
+    void countsValuesInsideInitialTree() {
+        SinglesCountTree tree = new SinglesCountTree();
+        tree.add(1, 1);
+        tree.add(5, 1);
+        tree.add(5, 1);
+        tree.add(1023, 1);
+
+        assertThat(tree.total()).isEqualTo(4);
+        assertThat(tree.countAtMost(0)).isZero();
+        assertThat(tree.countAtMost(1)).isEqualTo(1);
+        assertThat(tree.countAtMost(4)).isEqualTo(1);
+        assertThat(tree.countAtMost(5)).isEqualTo(3);
+        assertThat(tree.countAtMost(1022)).isEqualTo(3);
+        assertThat(tree.countAtMost(1023)).isEqualTo(4);
+        assertThat(tree.countAtMost(Long.MAX_VALUE)).isEqualTo(4);
+        assertThat(tree.treeSize()).isEqualTo(SinglesCountTree.INITIAL_TREE_SIZE);
+    }
+
+    @Test
+    void removingValueRestoresCounts() {
+        SinglesCountTree tree = new SinglesCountTree();
+        tree.add(7, 1);
+        tree.add(9, 1);
+        tree.add(7, -1);
+
+        assertThat(tree.total()).isEqualTo(1);
+        assertThat(tree.countAtMost(7)).isZero();
+        assertThat(tree.countAtMost(9)).isEqualTo(1);
+    }
+
+    @Test
+    void valuesBelowOneAreCountedOnlyInTotal() {
+        SinglesCountTree tree = new SinglesCountTree();
+        tree.add(0, 1);
+        tree.add(-3, 1);
+        tree.add(2, 1);
+
+        assertThat(tree.total()).isEqualTo(3);
+        assertThat(tree.countAtMost(0)).isZero();
+        assertThat(tree.countAtMost(2)).isEqualTo(1);
+    }
+
+    @Test
+    void growPreservesExistingCounts() {
+        SinglesCountTree tree = new SinglesCountTree();
+        for (int value = 1; value < SinglesCountTree.INITIAL_TREE_SIZE; value += 7) {
+            tree.add(value, value % 3 + 1);
+        }
+        long before = tree.countAtMost(SinglesCountTree.INITIAL_TREE_SIZE - 1);
+        long atHundred = tree.countAtMost(100);
+
+        tree.add(5000, 1);
+
+        assertThat(tree.treeSize()).isEqualTo(8192);
+        assertThat(tree.countAtMost(100)).isEqualTo(atHundred);
+        assertThat(tree.countAtMost(4999)).isEqualTo(before);
+        assertThat(tree.countAtMost(5000)).isEqualTo(before + 1);
+        assertThat(tree.overflowSize()).isZero();
+    }
+
+    @Test
+    void valuesAboveMaxTreeSizeGoToOverflow() {
+        SinglesCountTree tree = new SinglesCountTree();
+        long big = SinglesCountTree.MAX_TREE_SIZE;
+        tree.add(3, 1);
+        tree.add(big, 1);
+        tree.add(big + 10, 2);
+        tree.add(Long.MAX_VALUE, 1);
+
+        assertThat(tree.treeSize()).isEqualTo(SinglesCountTree.MAX_TREE_SIZE);
+        assertThat(tree.overflowSize()).isEqualTo(3);
+        assertThat(tree.countAtMost(big - 1)).isEqualTo(1);
+        assertThat(tree.countAtMost(big)).isEqualTo(2);
+        assertThat(tree.countAtMost(big + 9)).isEqualTo(2);
+        assertThat(tree.countAtMost(big + 10)).isEqualTo(4);
+        assertThat(tree.countAtMost(Long.MAX_VALUE)).isEqualTo(5);
+
+        tree.add(big + 10, -2);
+        assertThat(tree.overflowSize()).isEqualTo(2);
+        assertThat(tree.countAtMost(Long.MAX_VALUE - 1)).isEqualTo(2);
+    }
+
+    @Test
+    void matchesNaiveCountsOnRandomUpdates() {
+        Random random = new Random(42);
+        SinglesCountTree tree = new SinglesCountTree();
+        TreeMap<Long, Long> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            long value = random.nextInt(4) == 0
+                    ? SinglesCountTree.MAX_TREE_SIZE + random.nextInt(1000)
+                    : 1 + random.nextInt(20000);
+            long current = expected.getOrDefault(value, 0L);
+            long delta = current > 0 && random.nextBoolean() ? -1 : 1;
+            tree.add(value, delta);
+            expected.merge(value, delta, Long::sum);
+        }
+        for (int i = 0; i < 500; i++) {
+            long value = random.nextInt(SinglesCountTree.MAX_TREE_SIZE + 2000);
+            long naive = expected.headMap(value, true).values().stream().mapToLong(Long::longValue).sum();
+            assertThat(tree.countAtMost(value)).as("countAtMost(%d)", value).isEqualTo(naive);
+        }
+        assertThat(tree.total()).isEqualTo(expected.values().stream().mapToLong(Long::longValue).sum());
+    }
+}
@@ -0,0 +1,90 @@
+package com.evelina.labs.service;
+
+import com.evelina.labs.event.MusicBandChangedEvent;
+import com.evelina.labs.models.MusicBand;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SinglesWriteBehindBufferTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final SinglesWriteBehindBuffer buffer = new SinglesWriteBehindBuffer(jdbcTemplate,
+            new TransactionTemplate(transactionManager), eventPublisher, true, 100);
+
+    @Test
+    void keepsDeltasWhenWriteFails() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+        buffer.add(1, 1);
+        buffer.add(1, 1);
+
+        assertThatThrownBy(buffer::flush).isInstanceOf(DataAccessResourceFailureException.class);
+
+        assertThat(buffer.withPending(band(1, 5L, 3L)).getSinglesCount()).isEqualTo(7);
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void dropsDeltasOnlyAfterCommit() {
+        buffer.add(1, 2);
+        returnWrittenRow(1, 7L, 4L, () -> {
+            // до коммита старая строка дополняется всем приращением, уже записанная строка - нет
+            assertThat(buffer.withPending(band(1, 5L, 3L)).getSinglesCount()).isEqualTo(7);
+            assertThat(buffer.withPending(band(1, 7L, 4L)).getSinglesCount()).isEqualTo(7);
+        });
+
+        buffer.flush();
+
+        assertThat(buffer.withPending(band(1, 7L, 4L)).getSinglesCount()).isEqualTo(7);
+        verify(eventPublisher).publishEvent(MusicBandChangedEvent.singlesAdded(1, 2, 7L, 4L));
+    }
+
+    @Test
+    void keepsDeltasAddedDuringWrite() {
+        buffer.add(1, 2);
+        returnWrittenRow(1, 7L, 4L, () -> buffer.add(1, 1));
+
+        buffer.flush();
+
+        assertThat(buffer.withPending(band(1, 7L, 4L)).getSinglesCount()).isEqualTo(8);
+    }
+
+    private void returnWrittenRow(int id, long singlesCount, long version, Runnable beforeCommit) {
+        doAnswer(invocation -> {
+            ResultSet row = mock(ResultSet.class);
+            when(row.getInt(1)).thenReturn(id);
+            when(row.getLong(2)).thenReturn(singlesCount);
+            when(row.getLong(3)).thenReturn(version);
+            invocation.<RowCallbackHandler>getArgument(1).processRow(row);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+        doAnswer(invocation -> {
+            beforeCommit.run();
+            return null;
+        }).when(transactionManager).commit(any());
+    }
+
+    private static MusicBand band(int id, Long singlesCount, Long version) {
+        return MusicBand.builder().id(id).singlesCount(singlesCount).version(version).build();
+    }
+}
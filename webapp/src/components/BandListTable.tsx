@@ -188,9 +188,16 @@ const BandListTable: React.FC = () => {
         }
     };
 
-    const handleEdit = (band: MusicBand) => {
-        setEditingBand(band);
-        setShowEditModal(true);
+    const handleEdit = async (band: MusicBand) => {
+        // форма заполняется свежими данными группы: вместе с ними запоминается ETag для If-Match при сохранении
+        try {
+            setActionError(null);
+            setEditingBand(await viewModel.getBandById(band.id));
+            setShowEditModal(true);
+        } catch (e: any) {
+            setActionError(e.message || 'Не удалось загрузить группу');
+            setTimeout(() => setActionError(null), 5000);
+        }
     };
 
     const handleUpdate = async (request: BandRequest, id: number) => {
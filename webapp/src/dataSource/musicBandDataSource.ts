@@ -9,11 +9,21 @@ import Label from '../models/Label';
 
 export class MusicBandDataSource {
     private baseUrl: string;
+    // ETag группы, полученный вместе с данными, которые редактируются: PUT отправляет его в If-Match,
+    // чтобы не затереть изменения, сделанные после загрузки формы
+    private eTags = new Map<number, string>();
 
     constructor(baseUrl: string = baseBandsApiUrl) {
         this.baseUrl = baseUrl;
     }
 
+    private rememberETag(id: number, response: Response): void {
+        const eTag = response.headers.get('ETag');
+        if (eTag) {
+            this.eTags.set(id, eTag);
+        }
+    }
+
     async getBandById(id: number): Promise<MusicBand> {
         const response = await fetch(`${this.baseUrl}/${id}`, {
             method: 'GET',
@@ -26,6 +36,7 @@ export class MusicBandDataSource {
             throw new Error(`Группа с ID ${id} не найдена: ${response.statusText}`);
         }
 
+        this.rememberETag(id, response);
         const xmlData = await response.text();
         return this.parseBandFromXml(xmlData);
     }
@@ -54,20 +65,30 @@ export class MusicBandDataSource {
 
     async updateBand(id: number, bandRequest: BandRequest): Promise<MusicBand> {
         const xmlBody = this.bandRequestToXml(bandRequest);
+        const eTag = this.eTags.get(id);
+        if (!eTag) {
+            throw new Error(`Данные группы с ID ${id} не загружены, откройте форму редактирования заново`);
+        }
 
         const response = await fetch(`${this.baseUrl}/${id}`, {
             method: 'PUT',
             headers: {
                 'Content-Type': 'application/xml',
                 'Accept': 'application/xml',
+                'If-Match': eTag,
             },
             body: xmlBody,
         });
 
+        if (response.status === 412) {
+            this.eTags.delete(id);
+            throw new Error(`Группа с ID ${id} была изменена другим пользователем, обновите данные`);
+        }
         if (!response.ok) {
             throw new Error(`Failed to update band with id ${id}: ${response.statusText}`);
         }
 
+        this.rememberETag(id, response);
         const xmlData = await response.text();
         return this.parseBandFromXml(xmlData);
     }